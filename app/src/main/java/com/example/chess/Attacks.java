@@ -0,0 +1,158 @@
+package com.example.chess;
+
+public class Attacks {
+
+    public static final long[] ROOK_MAGICS = {
+            0x0200104081020021L,0x0440001000402001L,0xa100081041002000L,0x4080041000080081L,
+            0x81000428001a5100L,0x0200105431020008L,0x0200008142000804L,0x0200040082005021L,
+            0x05c4800040008020L,0x8000c010006000c1L,0x1101002000104100L,0x2908800802801002L,
+            0x0013000800510104L,0x0482000200100804L,0x0001000100020004L,0x0201000081000042L,
+            0x4480014000200043L,0x0080210040008100L,0x2800808020001008L,0x0000808010000800L,
+            0x0004008006080080L,0x8001010002080400L,0x02224c00410608b0L,0x00000e000881104cL,
+            0x008000c940002000L,0x0020200840005000L,0x0000200080801000L,0x0801000900201003L,
+            0x0002080100050010L,0x0144010040020040L,0x0000108400010802L,0x1004010200008044L,
+            0x2880002002400042L,0x8000200182804000L,0xa100200080801000L,0x0000080080801002L,
+            0x0020080080800400L,0x1000800200800401L,0x0020089004000102L,0xe049802041800300L,
+            0x0000410080010028L,0x80005008a004c000L,0x0e24110020010044L,0x0008020100101000L,
+            0x2209000800110004L,0x4106000810020004L,0x00020810020c0013L,0x0000008041020004L,
+            0x0210204900800100L,0x0000200440009280L,0x080081d000200280L,0x0240100008008080L,
+            0x0000100801000500L,0x0000800400020080L,0x01010a1038892400L,0x0010110400488a00L,
+            0x0021001c20800041L,0x0441004008102085L,0x0420200500401009L,0x080500200410000bL,
+            0x0082002004081066L,0x0222001001040802L,0x0041d00908328604L,0x0d90008024104902L};
+    public static final long[] BISHOP_MAGICS = {
+            0x0271010202840100L,0x0411704103002000L,0x1050888200404081L,0x4004124204800000L,
+            0xc20405040518a000L,0x08020844045c0051L,0x2401008210402000L,0x0020110090100802L,
+            0x30200b2008008101L,0x0400441022020020L,0x2041115522020060L,0x0cb0444040828071L,
+            0x0021011040120504L,0x4000809010480004L,0x010000821002a000L,0xc881024054242000L,
+            0x0111844190020080L,0x0221060401020200L,0x0808001088004008L,0x000090080201c000L,
+            0x0014001200a24080L,0x0800800100600240L,0x000e0220a801381cL,0x400180242a081240L,
+            0x9202924040104201L,0x0288210004810200L,0x20380200010c0900L,0x6a88080000820002L,
+            0x004a040082008200L,0x0420410012010120L,0x0008004051044204L,0x0054090100404202L,
+            0x0108080800042041L,0x4008012804100251L,0x0008402221100400L,0x0085400808008200L,
+            0x20340082000c0104L,0x2010020020120081L,0x00048800801a1086L,0x2004041280013080L,
+            0x0004300248001180L,0x0000510808002004L,0x0201840048020100L,0x1203704010444200L,
+            0x002a080106400400L,0x00012a2808406600L,0x0104210401000c3aL,0x0104088210400203L,
+            0x0271080804050024L,0x2412020101092000L,0x0242091051100073L,0x00020b1084042808L,
+            0x0040401120220013L,0x0004200510008808L,0x4810100138088200L,0x4820428400418800L,
+            0x0082010108020201L,0x4001020304560600L,0x0202008612420840L,0x0410000000208800L,
+            0x37150010c0050100L,0x2800001202300104L,0x4200204404408400L,0x0002200101060880L};
+
+    // fancy magic bitboards: every square gets its own slice of the shared attack table, sized by its mask
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE = new long[102400];
+    private static final long[] BISHOP_TABLE = new long[5248];
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    // 0 = white pawns (moving up the board), 1 = black pawns
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // lines through each square, indexed like the pins: 0 = vertical, 1 = diagonal right, 2 = horizontal, 3 = diagonal left
+    public static final long[][] LINE_MASKS = new long[4][64];
+
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, 1}, {1, 1}, {1, -1}, {-1, -1}};
+    private static final int[][] KNIGHT_OFFSETS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_OFFSETS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+    static {
+        int rookOffset = 0;
+        int bishopOffset = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = relevantOccupancy(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_OFFSETS[square] = rookOffset;
+            rookOffset += fillTable(square, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square],
+                    ROOK_TABLE, rookOffset, ROOK_DIRECTIONS);
+
+            BISHOP_MASKS[square] = relevantOccupancy(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_OFFSETS[square] = bishopOffset;
+            bishopOffset += fillTable(square, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square],
+                    BISHOP_TABLE, bishopOffset, BISHOP_DIRECTIONS);
+
+            LINE_MASKS[0][square] = slidingAttacks(square, 0L, new int[][]{{-1, 0}, {1, 0}}) | (1L << square);
+            LINE_MASKS[1][square] = slidingAttacks(square, 0L, new int[][]{{-1, 1}, {1, -1}}) | (1L << square);
+            LINE_MASKS[2][square] = slidingAttacks(square, 0L, new int[][]{{0, 1}, {0, -1}}) | (1L << square);
+            LINE_MASKS[3][square] = slidingAttacks(square, 0L, new int[][]{{-1, -1}, {1, 1}}) | (1L << square);
+
+            KNIGHT_ATTACKS[square] = leaperAttacks(square, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = leaperAttacks(square, KING_OFFSETS);
+            PAWN_ATTACKS[0][square] = leaperAttacks(square, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN_ATTACKS[1][square] = leaperAttacks(square, new int[][]{{1, -1}, {1, 1}});
+        }
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[square] +
+                (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] +
+                (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    private static long leaperAttacks(int square, int[][] offsets) {
+        long attacks = 0L;
+        for (int[] offset : offsets) {
+            int row = square / 8 + offset[0];
+            int column = square % 8 + offset[1];
+            if (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                attacks |= (1L << (8 * row + column));
+            }
+        }
+        return attacks;
+    }
+
+    private static int fillTable(int square, long mask, long magic, int shift, long[] table, int offset, int[][] directions) {
+        // walk every subset of the mask (carry-rippler) and store the ray-walked attacks at its magic index
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magic) >>> shift);
+            table[offset + index] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+        return 1 << (64 - shift);
+    }
+
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int column = square % 8 + direction[1];
+            while (row + direction[0] >= 0 && row + direction[0] < 8 && column + direction[1] >= 0 && column + direction[1] < 8) {
+                mask |= (1L << (8 * row + column));
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int column = square % 8 + direction[1];
+            while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                attacks |= (1L << (8 * row + column));
+                if (((occupied >> (8 * row + column)) & 1) == 1) {
+                    break;
+                }
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.chess;
+
+// searches a fixed set of positions to a fixed depth; with one thread the node total only changes when the search
+// does, so it doubles as a signature of a build, and nodes per second compares speed across builds
+public class Bench {
+
+    public static final int DEFAULT_DEPTH = 10;
+
+    private static final String[] POSITIONS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "r2q1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1Q1PPP/R3KB1R w KQ - 0 9",
+            "2r3k1/pp3ppp/2n1b3/3p4/3P4/2N1B3/PP3PPP/2R3K1 w - - 0 20",
+            "8/5pk1/6p1/7p/7P/6P1/5PK1/8 w - - 0 40",
+            "8/8/4k3/8/2R5/8/4K3/8 w - - 0 1",
+            "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"
+    };
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH);
+        int threads = (args.length > 1 ? Integer.parseInt(args[1]) : 1);
+        int multiPv = (args.length > 2 ? Integer.parseInt(args[2]) : 1);
+        run(depth, threads, multiPv);
+    }
+
+    public static long run(int depth, int threads, int multiPv) {
+        long totalNodes = 0;
+        TranspositionTable table = new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < POSITIONS.length; i++) {
+            System.out.println("position " + (i + 1) + "/" + POSITIONS.length + " " + POSITIONS[i]);
+            // a fresh board and an empty table each time, so that nothing carries over from the previous position
+            table.clear();
+            Board board = GameLogic.createBoardFromFEN(POSITIONS[i]);
+            board.setTranspositionTable(table);
+            board.setThreads(threads);
+            board.setMultiPv(multiPv);
+            board.startSearch(SearchLimits.depth(depth));
+            totalNodes += board.getSearchNodes();
+            for (SearchResult line : board.getSearchResults()) {
+                System.out.println(line);
+            }
+            System.out.println(board.getSearchStats());
+        }
+        long time = Math.max(1, System.currentTimeMillis() - startTime);
+        System.out.println("===========================");
+        System.out.println("depth          : " + depth);
+        System.out.println("threads        : " + threads);
+        System.out.println("multipv        : " + multiPv);
+        System.out.println("total time (ms): " + time);
+        System.out.println("nodes searched : " + totalNodes);
+        System.out.println("nodes/second   : " + totalNodes * 1000 / time);
+        return totalNodes;
+    }
+}
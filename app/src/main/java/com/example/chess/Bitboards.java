@@ -0,0 +1,40 @@
+package com.example.chess;
+
+public class Bitboards {
+
+    // squares strictly between two aligned squares, 0 if they do not share a line
+    public static final long[][] BETWEEN = new long[64][64];
+
+    static {
+        for (int from = 0; from < 64; from++) {
+            for (int direction = 0; direction < 4; direction++) {
+                long others = Attacks.LINE_MASKS[direction][from] ^ (1L << from);
+                while (others != 0) {
+                    int to = lsb(others);
+                    others = popLsb(others);
+                    if (direction % 2 == 0) {
+                        BETWEEN[from][to] = Attacks.rookAttacks(from, 1L << to) & Attacks.rookAttacks(to, 1L << from);
+                    } else {
+                        BETWEEN[from][to] = Attacks.bishopAttacks(from, 1L << to) & Attacks.bishopAttacks(to, 1L << from);
+                    }
+                }
+            }
+        }
+    }
+
+    public static int lsb(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    public static long popLsb(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    public static int row(int square) {
+        return square >> 3;
+    }
+
+    public static int column(int square) {
+        return square & 7;
+    }
+}
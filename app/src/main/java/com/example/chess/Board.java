@@ -1,6 +1,7 @@
 package com.example.chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Board {
 
@@ -20,7 +21,6 @@ public class Board {
     private int halfMoveCounter;
     private int fullMoveCounter;
 
-    private final ArrayList<Long> history;
     public ArrayList<Integer> moveHistory;
     private int whiteMaterial;
     private int blackMaterial;
@@ -39,12 +39,43 @@ public class Board {
     private long diagonalRightPin;
     private long diagonalLeftPin;
 
+    // derived state saved by makeMove and restored by unMakeMove, STATE_SIZE longs per move
+    private static final int STATE_SIZE = 8;
+    // moves the state array has room for at first, it doubles whenever a game or a search goes deeper
+    private static final int INITIAL_STATES = 32;
+    private long[] states;
+    private int stateCount;
+
     private long targetSquares;
     private int currentStartSquare;
     private int promotionInProgress;
-    private long cutoffTime;
-
-    private final ArrayList<Integer> bestMoves;
+    private final SearchControl control;
+    private final SearchStats stats;
+    private int threads;
+    private long searchNodes;
+
+    // the latest lines, best first, replaced as a whole so that readers on other threads always see a consistent set:
+    // those of the last completed iteration, headed by a better move found since when the next one was stopped
+    private volatile SearchResult[] results = {SearchResult.NONE};
+    private long searchStartTime;
+    private int multiPv;
+    // the lines of the multi pv iteration in progress, best first; null when only one line is searched
+    private SearchResult[] rootLines;
+    // compact moves heading the lines of the last iteration, searched first and in that order by the next one
+    private final int[] rootLineMoves;
+    private int rootLineMoveCount;
+    // principal variation of the last completed iteration, followed first by the next one
+    private final int[] principalVariation;
+    private int principalVariationLength;
+    // true while the search is still walking down the previous iteration's principal variation
+    private boolean followPv;
+    // null moves are off below this ply while a null move fail high is being verified
+    private int nullMoveMinPly;
+    // both allocated on the first search, most boards never search; the table can also be handed in
+    private SearchStack stack;
+    private TranspositionTable table;
+    // handed to the stack, allocated with it unless set first
+    private int[][][] history;
 
     public static final int PIECE_MASK = 7;
     public static final int KING_MASK = 6;
@@ -55,12 +86,58 @@ public class Board {
     public static final int PAWN_MASK = 1;
     public static final int EMPTY_MASK = 0;
 
-    public final int[] KNIGHT_VECTORS = {-17, -15, -10, -6, 6, 10, 15, 17};
-    public final int[] SLIDE_VECTORS = {-8, -7, 1, 9, 8, 7, -1, -9};
-    public final int[][] DISTANCE_TO_EDGE = fillDistances();
+    public static final int MATE_SCORE = 999999999;
+    // scores beyond this are mates, MATE_SCORE minus the number of plies to the mate
+    public static final int MATE_BOUND = MATE_SCORE - SearchStack.MAX_PLY;
+    // full search window, kept one off the int limits so that negating it never overflows
+    public static final int INFINITY = 0x7ffffffe;
+    // half width of the first aspiration window around the previous iteration's score
+    public static final int ASPIRATION_WINDOW = 25;
+    // null move fail highs at this depth or more are checked with a reduced search before being trusted
+    public static final int NULL_MOVE_VERIFY_DEPTH = 8;
+    // safety margin for delta pruning on top of the material a capture can win
+    public static final int DELTA_MARGIN = 200;
+    // frontier pruning margins, indexed by remaining depth
+    private static final int[] RAZOR_MARGINS = {0, 300, 550};
+    private static final int[] FUTILITY_MARGINS = {0, 200, 400};
+    // quiet moves searched before late move pruning starts, by [improving][remaining depth]
+    private static final int[][] LATE_MOVE_COUNTS = {{0, 3, 6, 10}, {0, 5, 10, 16}};
+    // quiet moves whose history is at least this high have cut off too often lately to be pruned
+    private static final int PRUNE_HISTORY_LIMIT = SearchStack.HISTORY_MAX / 4;
+    // late move reductions by [depth][move number], both capped at 63
+    private static final int[][] REDUCTIONS = fillReductions();
+
+    public static final int[] PIECE_VALUES = {0, 100, 300, 300, 500, 900, 0};
+    public static final long PROMOTION_ROWS = 0xff000000000000ffL;
+
+    public static final int GEN_ALL = 0;
+    public static final int GEN_CAPTURES = 1;
+    public static final int GEN_QUIETS = 2;
+
+    // capture scores are offset by their exchange outcome, so that winning captures come before even ones and
+    // losing captures (below EQUAL_CAPTURE) come last
+    public static final int EQUAL_CAPTURE = 1 << 16;
+    public static final int GOOD_CAPTURE = 2 << 16;
+
+    private static int[][] fillReductions() {
+        int[][] reductions = new int[64][64];
+        for (int depth = 1; depth < 64; depth++) {
+            for (int moveNumber = 1; moveNumber < 64; moveNumber++) {
+                reductions[depth][moveNumber] = (int) (0.75 + Math.log(depth) * Math.log(moveNumber) / 2.25);
+            }
+        }
+        return reductions;
+    }
 
     public Board(long whitePieces, long blackPieces, long kings, long queens, long rooks, long knights, long bishops, long pawns,
                  boolean whiteToMove, int castleRights, int enPassantColumn, int halfMoveCounter, int fullMoveCounter){
+        this(whitePieces, blackPieces, kings, queens, rooks, knights, bishops, pawns, whiteToMove, castleRights, enPassantColumn,
+                halfMoveCounter, fullMoveCounter, null);
+    }
+
+    private Board(long whitePieces, long blackPieces, long kings, long queens, long rooks, long knights, long bishops, long pawns,
+                  boolean whiteToMove, int castleRights, int enPassantColumn, int halfMoveCounter, int fullMoveCounter,
+                  TranspositionTable table) {
 
         this.whitePieces = whitePieces;
         this.blackPieces = blackPieces;
@@ -81,94 +158,111 @@ public class Board {
 
         this.targetSquares = 0L;
         this.currentStartSquare = -1;
+        this.states = new long[STATE_SIZE * INITIAL_STATES];
 
         updatePins();
         checkChecks();
         initData();
 
-        this.bestMoves = new ArrayList<>();
+        this.principalVariation = new int[SearchStack.MAX_PLY];
+        this.rootLineMoves = new int[SearchStack.MAX_MOVES];
+        this.multiPv = 1;
+        this.control = new SearchControl();
+        this.stats = new SearchStats();
+        this.threads = 1;
+        this.table = table;
         this.moveHistory = new ArrayList<>();
-        this.history = new ArrayList<>();
-        history.add(zobristKey);
+    }
+
+    public Board copy() {
+        // same position and game history with its own search state, sharing this board's transposition table
+        Board board = new Board(whitePieces, blackPieces, kings, queens, rooks, knights, bishops, pawns, whiteToMove,
+                castleRights, enPassantColumn, halfMoveCounter, fullMoveCounter, table);
+        board.states = Arrays.copyOf(states, states.length);
+        board.stateCount = stateCount;
+        board.moveHistory.addAll(moveHistory);
+        board.threads = threads;
+        board.multiPv = multiPv;
+        return board;
     }
 
     private void initData() {
         long whitePawns = whitePieces & pawns;
         while (whitePawns != 0) {
-            int pos = (whitePawns > 0 ? (int)(Math.log(whitePawns) / Math.log(2)) : 63);
-            whitePawns ^= (1L << pos);
+            int pos = Bitboards.lsb(whitePawns);
+            whitePawns = Bitboards.popLsb(whitePawns);
             whitePawnsMaterial += 100;
             zobristKey ^= GameLogic.WHITE_PAWN_HASH[pos];
         }
         long whiteBishops = whitePieces & bishops;
         while (whiteBishops != 0) {
-            int pos = (whiteBishops > 0 ? (int)(Math.log(whiteBishops) / Math.log(2)) : 63);
-            whiteBishops ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteBishops);
+            whiteBishops = Bitboards.popLsb(whiteBishops);
             whiteMaterial += 300;
             zobristKey ^= GameLogic.WHITE_BISHOP_HASH[pos];
         }
         long whiteKnights = whitePieces & knights;
         while (whiteKnights != 0) {
-            int pos = (whiteKnights > 0 ? (int)(Math.log(whiteKnights) / Math.log(2)) : 63);
-            whiteKnights ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteKnights);
+            whiteKnights = Bitboards.popLsb(whiteKnights);
             whiteMaterial += 300;
             zobristKey ^= GameLogic.WHITE_KNIGHT_HASH[pos];
         }
         long whiteRooks = whitePieces & rooks;
         while (whiteRooks != 0) {
-            int pos = (whiteRooks > 0 ? (int)(Math.log(whiteRooks) / Math.log(2)) : 63);
-            whiteRooks ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteRooks);
+            whiteRooks = Bitboards.popLsb(whiteRooks);
             whiteMaterial += 500;
             zobristKey ^= GameLogic.WHITE_ROOK_HASH[pos];
         }
         long whiteQueens = whitePieces & queens;
         while (whiteQueens != 0) {
-            int pos = (whiteQueens > 0 ? (int)(Math.log(whiteQueens) / Math.log(2)) : 63);
-            whiteQueens ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteQueens);
+            whiteQueens = Bitboards.popLsb(whiteQueens);
             whiteMaterial += 900;
             zobristKey ^= GameLogic.WHITE_QUEEN_HASH[pos];
         }
         long whiteKing = whitePieces & kings;
-        int whiteKingPos = (whiteKing > 0 ? (int)(Math.log(whiteKing) / Math.log(2)) : 63);
+        int whiteKingPos = Bitboards.lsb(whiteKing);
         zobristKey ^= GameLogic.WHITE_KING_HASH[whiteKingPos];
 
         long blackPawns = blackPieces & pawns;
         while (blackPawns != 0) {
-            int pos = (blackPawns > 0 ? (int)(Math.log(blackPawns) / Math.log(2)) : 63);
-            blackPawns ^= (1L << pos);
+            int pos = Bitboards.lsb(blackPawns);
+            blackPawns = Bitboards.popLsb(blackPawns);
             blackPawnsMaterial += 100;
             zobristKey ^= GameLogic.BLACK_PAWN_HASH[pos];
         }
         long blackBishops = blackPieces & bishops;
         while (blackBishops != 0) {
-            int pos = (blackBishops > 0 ? (int)(Math.log(blackBishops) / Math.log(2)) : 63);
-            blackBishops ^= (1L << pos);
+            int pos = Bitboards.lsb(blackBishops);
+            blackBishops = Bitboards.popLsb(blackBishops);
             blackMaterial += 300;
             zobristKey ^= GameLogic.BLACK_BISHOP_HASH[pos];
         }
         long blackKnights = blackPieces & knights;
         while (blackKnights != 0) {
-            int pos = (blackKnights > 0 ? (int)(Math.log(blackKnights) / Math.log(2)) : 63);
-            blackKnights ^= (1L << pos);
+            int pos = Bitboards.lsb(blackKnights);
+            blackKnights = Bitboards.popLsb(blackKnights);
             blackMaterial += 300;
             zobristKey ^= GameLogic.BLACK_KNIGHT_HASH[pos];
         }
         long blackRooks = blackPieces & rooks;
         while (blackRooks != 0) {
-            int pos = (blackRooks > 0 ? (int)(Math.log(blackRooks) / Math.log(2)) : 63);
-            blackRooks ^= (1L << pos);
+            int pos = Bitboards.lsb(blackRooks);
+            blackRooks = Bitboards.popLsb(blackRooks);
             blackMaterial += 500;
             zobristKey ^= GameLogic.BLACK_ROOK_HASH[pos];
         }
         long blackQueens = blackPieces & queens;
         while (blackQueens != 0) {
-            int pos = (blackQueens > 0 ? (int)(Math.log(blackQueens) / Math.log(2)) : 63);
-            blackQueens ^= (1L << pos);
+            int pos = Bitboards.lsb(blackQueens);
+            blackQueens = Bitboards.popLsb(blackQueens);
             blackMaterial += 900;
             zobristKey ^= GameLogic.BLACK_QUEEN_HASH[pos];
         }
         long blackKing = blackPieces & kings;
-        int pos = (blackKing > 0 ? (int)(Math.log(blackKing) / Math.log(2)) : 63);
+        int pos = Bitboards.lsb(blackKing);
         zobristKey ^= GameLogic.BLACK_KING_HASH[pos];
 
         if (whiteToMove) {
@@ -185,31 +279,124 @@ public class Board {
 
     }
 
-    public void addHistory() {
-        history.add(zobristKey);
+    public boolean isWhiteToMove() {
+        return whiteToMove;
     }
 
-    public void removeHistory() {
-        history.remove(history.size() - 1);
+    public int getEnPassantColumn() {
+        return enPassantColumn;
     }
 
-    public final int[][] fillDistances() {
-        int[][] distances = new int[64][8];
-        for (int row = 0; row < 8; row++) {
-            for (int column = 0; column < 8; column++) {
-                distances[8 * row + column] = new int[]{row, Math.min(row, 7 - column), 7 - column,
-                        Math.min(7 - row, 7 - column), 7 - row, Math.min(7 - row, column), column, Math.min(row, column)};
-            }
-        }
-        return distances;
+    public int getHalfMoveCounter() {
+        return halfMoveCounter;
     }
 
     public int getFullMoveCounter() {
         return  fullMoveCounter;
     }
 
+    public SearchResult getSearchResult() {
+        return results[0];
+    }
+
+    // the best lines, best first, as many as setMultiPv asked for or the position has legal moves. Line one is always
+    // getSearchResult(), even when it is a partial iteration's move ahead of the lines the last completed one left
+    public SearchResult[] getSearchResults() {
+        SearchResult[] current = results;
+        return Arrays.copyOf(current, current.length);
+    }
+
     public int getBestMove() {
-        return bestMoves.get(0);
+        return getSearchResult().getBestMove();
+    }
+
+    public int[] getPrincipalVariation() {
+        return getSearchResult().getPrincipalVariation();
+    }
+
+    // the reply the search expects to the best move, read from the table when the principal variation stops short.
+    // Makes moves on this board, so only call it once the search is over
+    public int getPonderMove() {
+        SearchResult current = getSearchResult();
+        int ponderMove = current.getPonderMove();
+        if (ponderMove == 0 && current.getBestMove() != 0) {
+            makeMove(current.getBestMove());
+            long entry = getTranspositionTable().probe(zobristKey);
+            if (entry != 0) {
+                ponderMove = expandMove(TranspositionTable.move(entry));
+            }
+            unMakeMove(current.getBestMove());
+        }
+        return ponderMove;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        if (table == null) {
+            table = new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+        }
+        return table;
+    }
+
+    // lets boards that take turns searching the same game, like the copies an engine thread searches, keep one table
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    // the same for the history of quiet moves, so that what one search learned is only aged, not lost, by the next
+    public void setHistory(int[][][] history) {
+        this.history = history;
+        if (stack != null) {
+            stack.history = history;
+        }
+    }
+
+    public SearchControl getSearchControl() {
+        return control;
+    }
+
+    public SearchStats getSearchStats() {
+        return stats;
+    }
+
+    public void stopSearch() {
+        control.stop();
+    }
+
+    public void cancelSearch() {
+        control.cancel();
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // how many root moves to report with their own line and score
+    public void setMultiPv(int multiPv) {
+        this.multiPv = Math.max(1, Math.min(multiPv, SearchStack.MAX_MOVES));
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    public long getSearchNodes() {
+        return searchNodes;
+    }
+
+    public void setHashSize(int megabytes) {
+        if (table == null) {
+            table = new TranspositionTable(megabytes);
+        } else {
+            table.resize(megabytes);
+        }
+    }
+
+    public boolean isInCheck() {
+        return inCheck;
     }
 
     public boolean whiteToMove() {
@@ -276,7 +463,7 @@ public class Board {
 
     public void updateTargetSquares(int startPos) {
         targetSquares = 0L;
-        targetSquares = generateEndPos(startPos, false);
+        targetSquares = generateEndPos(startPos);
         currentStartSquare = startPos;
     }
 
@@ -362,57 +549,162 @@ public class Board {
         return move;
     }
 
+    public static int compactMove(int move) {
+        // start, end and promotion piece only, without the position dependent info bits
+        int startPos = (move >> 9) & 0b111111;
+        if (((move >> 15) & 0b11) == 1) {
+            int endPos = ((move >> 4) & 0b11) + startPos + (startPos < 16 ? -9 : 7);
+            return endPos | (startPos << 6) | (1 << 12) | (((move >> 2) & 0b11) << 13);
+        }
+        return (move & 0b111111) | (startPos << 6);
+    }
+
     public ArrayList<Integer> generateAllLegalMoves(boolean attackOnly) {
-        ArrayList<Integer> allMoves = new ArrayList<>();
+        int[] buffer = new int[SearchStack.MAX_MOVES];
+        int count = generateMoves(buffer, (attackOnly ? GEN_CAPTURES : GEN_ALL));
+        ArrayList<Integer> allMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            allMoves.add(buffer[i]);
+        }
+        return allMoves;
+    }
 
-        for (int i = 0; i < 64; i ++) {
-            if ((((whiteToMove ? whitePieces : blackPieces) >> i) & 1) == 1) {
+    public int generateMoves(int[] moves, int type) {
+        return generateMoves(moves, 0, type);
+    }
 
-                long endPositions = generateEndPos(i, attackOnly);
-                while (endPositions != 0) {
-                    int endPos = (endPositions > 0 ? (int)(Math.log(endPositions) / Math.log(2)) : 63);
-                    endPositions ^= (1L << endPos);
+    public int generateMoves(int[] moves, int offset, int type) {
+        int count = offset;
 
-                    if (((pawns >> i) & 1) == 1 && (endPos < 8 || endPos > 55)) {
-                        for (int j = 0; j < 4; j++) {
-                            allMoves.add(createPromotionMove(i, endPos, j));
-                        }
-                    } else {
-                        allMoves.add(createMove(i, endPos));
+        long myPieces = (whiteToMove ? whitePieces : blackPieces);
+        long enemyPieces = (whiteToMove ? blackPieces : whitePieces);
+        long enPassantSquare = (enPassantColumn == 8 ? 0L : 1L << (enPassantColumn + (whiteToMove ? 16 : 40)));
+        while (myPieces != 0) {
+            int i = Bitboards.lsb(myPieces);
+            myPieces = Bitboards.popLsb(myPieces);
+
+            long endPositions = generateEndPos(i);
+            if (type != GEN_ALL) {
+                // captures also take in en passant and every promotion, quiets are whatever is left
+                long captureTargets = enemyPieces;
+                if (((pawns >> i) & 1) == 1) {
+                    captureTargets |= enPassantSquare | PROMOTION_ROWS;
+                }
+                endPositions &= (type == GEN_CAPTURES ? captureTargets : ~captureTargets);
+            }
+            while (endPositions != 0) {
+                int endPos = Bitboards.lsb(endPositions);
+                endPositions = Bitboards.popLsb(endPositions);
+
+                if (((pawns >> i) & 1) == 1 && (endPos < 8 || endPos > 55)) {
+                    for (int j = 0; j < 4; j++) {
+                        moves[count++] = createPromotionMove(i, endPos, j);
                     }
+                } else {
+                    moves[count++] = createMove(i, endPos);
                 }
             }
         }
-        return allMoves;
+        return count;
+    }
+
+    public boolean hasAnyLegalMove() {
+        // stops at the first piece with a legal target, the king first as it is the most likely to have one
+        long myPieces = (whiteToMove ? whitePieces : blackPieces);
+        long myKing = myPieces & kings;
+        if (generateEndPos(Bitboards.lsb(myKing)) != 0) {
+            return true;
+        }
+        if (inDoubleCheck) {
+            return false;
+        }
+        myPieces ^= myKing;
+        while (myPieces != 0) {
+            if (generateEndPos(Bitboards.lsb(myPieces)) != 0) {
+                return true;
+            }
+            myPieces = Bitboards.popLsb(myPieces);
+        }
+        return false;
+    }
+
+    int expandMove(int compactMove) {
+        // turns a compact table/killer move back into a full move, or 0 if it is not legal here
+        int startPos = (compactMove >> 6) & 0b111111;
+        int endPos = compactMove & 0b111111;
+        if (compactMove == 0 || !piecesTurn(startPos) || ((generateEndPos(startPos) >> endPos) & 1) == 0) {
+            return 0;
+        }
+        boolean promotion = ((compactMove >> 12) & 1) == 1;
+        if (((pawns >> startPos) & 1) == 1 && (endPos < 8 || endPos > 55)) {
+            return (promotion ? createPromotionMove(startPos, endPos, (compactMove >> 13) & 0b11) : 0);
+        }
+        return (promotion ? 0 : createMove(startPos, endPos));
+    }
+
+    boolean isQuiet(int move) {
+        if (((move >> 15) & 0b11) == 1 || ((move >> 6) & PIECE_MASK) != EMPTY_MASK) {
+            return false;
+        }
+        int startPos = (move >> 9) & 0b111111;
+        return ((pawns >> startPos) & 1) == 0 || startPos % 8 == (move & 0b111111) % 8;
+    }
+
+    // whether a quiet move checks the other king, directly or by uncovering a slider, without making it.
+    // Castling is always reported as a check
+    boolean givesCheck(int move) {
+        int startPos = (move >> 9) & 0b111111;
+        int endPos = move & 0b111111;
+        long ownPieces = (whiteToMove ? whitePieces : blackPieces);
+        int king = Bitboards.lsb(kings & ~ownPieces);
+        long occupied = (pieces ^ (1L << startPos)) | (1L << endPos);
+        long direct;
+        switch (getPieceOnTile(startPos) & PIECE_MASK) {
+            case PAWN_MASK:
+                direct = Attacks.PAWN_ATTACKS[whiteToMove ? 0 : 1][endPos];
+                break;
+            case KNIGHT_MASK:
+                direct = Attacks.KNIGHT_ATTACKS[endPos];
+                break;
+            case BISHOP_MASK:
+                direct = Attacks.bishopAttacks(endPos, occupied);
+                break;
+            case ROOK_MASK:
+                direct = Attacks.rookAttacks(endPos, occupied);
+                break;
+            case QUEEN_MASK:
+                direct = Attacks.queenAttacks(endPos, occupied);
+                break;
+            default:
+                if (Math.abs(startPos - endPos) == 2) {
+                    return true;
+                }
+                direct = 0L;
+                break;
+        }
+        if (((direct >> king) & 1) == 1) {
+            return true;
+        }
+        long sliders = ownPieces & ~(1L << startPos);
+        return ((Attacks.bishopAttacks(king, occupied) & (bishops | queens) & sliders) |
+                (Attacks.rookAttacks(king, occupied) & (rooks | queens) & sliders)) != 0;
     }
 
     private boolean notEnPassantPinned(int position) {
 
         long myKing = kings & (whiteToMove ? whitePieces : blackPieces);
-        int kingPos = (myKing > 0 ? (int)(Math.log(myKing) / Math.log(2)) : 63);
-
-        if (GameLogic.getRow(kingPos) == GameLogic.getRow(position)) {
-            int pawnPos = position - (position % 8) + enPassantColumn;
-            int vector = (position - kingPos) / Math.abs(kingPos - position);
-            boolean pastPawns = false;
-            int pos = kingPos + vector;
-            for (int i = 0; i < DISTANCE_TO_EDGE[kingPos][(vector > 0 ? 2 : 6)]; i++) {
-                if (pos == pawnPos || pos == position) {
-                    pastPawns = true;
-                } else if (((pieces >> pos) & 1) == 1) {
-                    if (!pastPawns) {
-                        return true;
-                    } else {
-                        return ((((rooks | queens) & (whiteToMove ? blackPieces : whitePieces)) >> pos) & 1) != 1;
-                    }
-                }
-                pos += vector;
-            }
+        int kingPos = Bitboards.lsb(myKing);
+        if (Bitboards.row(kingPos) != Bitboards.row(position)) {
+            return true;
         }
-        return true;
+        long pawnMask = (1L << position) | (1L << (position - (position % 8) + enPassantColumn));
+
+        // both pawns leave the row at once, so look for a rook or queen behind them on the king's row
+        long enemySliders = (rooks | queens) & (whiteToMove ? blackPieces : whitePieces);
+        return (Attacks.rookAttacks(kingPos, pieces ^ pawnMask) & Attacks.LINE_MASKS[2][kingPos] & enemySliders) == 0;
     }
 
-    private long generateEndPos(final int position, boolean attackOnly) {
+    private long generateEndPos(final int position) {
 
         if (inDoubleCheck) {
             if (((kings >> position) & 1) == 1) {
@@ -442,54 +734,36 @@ public class Board {
                 }
                 return out;
             }
-            if (attackOnly) {
-                out ^= tilesToMovePawn(position);
-            }
             return out;
         } else if (((queens >> position) & 1) == 1) {
             long out = tilesAttackedQueen(position, true) & (whiteToMove ? ~whitePieces : ~blackPieces);
             if (inCheck) {
                 return out & tilesToStopCheck;
             }
-            if (attackOnly) {
-                return out & (whiteToMove ? blackPieces : whitePieces);
-            }
             return out;
         } else if (((rooks >> position) & 1) == 1) {
             long out = tilesAttackedRook(position, true) & (whiteToMove ? ~whitePieces : ~blackPieces);
             if (inCheck) {
                 return out & tilesToStopCheck;
             }
-            if (attackOnly) {
-                return out & (whiteToMove ? blackPieces : whitePieces);
-            }
             return out;
         } else if (((knights >> position) & 1) == 1) {
             long out = tilesAttackedKnight(position, true) & (whiteToMove ? ~whitePieces : ~blackPieces);
             if (inCheck) {
                 return out & tilesToStopCheck;
             }
-            if (attackOnly) {
-                return out & (whiteToMove ? blackPieces : whitePieces);
-            }
             return out;
         } else if (((bishops >> position) & 1) == 1) {
             long out = tilesAttackedBishop(position, true) & (whiteToMove ? ~whitePieces : ~blackPieces);
             if (inCheck) {
                 return out & tilesToStopCheck;
             }
-            if (attackOnly) {
-                return out & (whiteToMove ? blackPieces : whitePieces);
-            }
             return out;
         } else if (((kings >> position) & 1) == 1) {
             long out = tilesAttackedKing(position) & ~tilesAttacked & (whiteToMove ? ~whitePieces : ~blackPieces);
             if (inCheck) {
                 return out & ~tilesAttacked;
             }
-            if (attackOnly) {
-                return out & (whiteToMove ? blackPieces : whitePieces);
-            }
             if (whiteToMove) {
                 if ((castleRights >> 3 & 1) == 1 && ((pieces >> 61) & 0b11) == 0 && ((tilesAttacked >> 61) & 0b11) == 0) {
                     out |= (1L << 62);
@@ -511,118 +785,55 @@ public class Board {
     }
 
     private long tilesAttackedKing(final int position) {
-        long tiles = 0L;
-
-        for (int vector : SLIDE_VECTORS) {
-            if (position + vector >= 0 && position + vector < 64 &&
-                    (!(((vector == -1 || vector == -9 || vector == 7) && position % 8 == 0) ||
-                            ((vector == 1 || vector == 9 || vector == -7) && position % 8 == 7)))) {
-
-                tiles |= (1L << (position + vector));
-            }
-        }
-        return tiles;
+        return Attacks.KING_ATTACKS[position];
     }
 
     private long tilesAttackedQueen(final int position, boolean checkPins) {
-        long tiles = 0L;
-
-        for (int i = 0; i < 8; i ++) {
-            if (!checkPins || (i % 4 == 0 && (((diagonalLeftPin | diagonalRightPin | horizontalPin) >> position) & 1) == 0) ||
-                    (i % 4 == 1 && (((diagonalLeftPin | verticalPin | horizontalPin) >> position) & 1) == 0) ||
-                    (i % 4 == 2 && (((diagonalLeftPin | diagonalRightPin | verticalPin) >> position) & 1) == 0) ||
-                    (i % 4 == 3 && (((verticalPin | diagonalRightPin | horizontalPin) >> position) & 1) == 0)) {
-                int vector = SLIDE_VECTORS[i];
-                int pos = position + vector;
-                for (int j = 0; j < DISTANCE_TO_EDGE[position][i]; j++) {
-                    tiles |= (1L << pos);
-                    if (((pieces >> pos) & 1) == 1) {
-                        if (!checkPins && (((kings & (whiteToMove ? whitePieces : blackPieces)) >> pos) & 1) == 1) {
-                            tiles |= (1L << (pos + vector));
-                        }
-                        break;
-                    }
-                    pos += vector;
-                }
-            }
+        if (checkPins) {
+            return Attacks.queenAttacks(position, pieces) & pinRay(position);
         }
-        return tiles;
+        return Attacks.queenAttacks(position, pieces & ~(kings & (whiteToMove ? whitePieces : blackPieces)));
     }
 
     private long tilesAttackedRook(final int position, boolean checkPins) {
-        long tiles = 0L;
-
-        for (int i = 0; i < 8; i += 2) {
-            if (!checkPins || (i % 4 == 0 && (((diagonalLeftPin | diagonalRightPin | horizontalPin) >> position) & 1) == 0) ||
-                    (i % 4 == 2 && (((diagonalLeftPin | diagonalRightPin | verticalPin) >> position) & 1) == 0)) {
-                int vector = SLIDE_VECTORS[i];
-                int pos = position + vector;
-                for (int j = 0; j < DISTANCE_TO_EDGE[position][i]; j++) {
-                    tiles |= (1L << pos);
-                    if (((pieces >> pos) & 1) == 1) {
-                        if (!checkPins && (((kings & (whiteToMove ? whitePieces : blackPieces)) >> pos) & 1) == 1) {
-                            tiles |= (1L << (pos + vector));
-                        }
-                        break;
-                    }
-                    pos += vector;
-                }
-            }
+        if (checkPins) {
+            return Attacks.rookAttacks(position, pieces) & pinRay(position);
         }
-        return tiles;
+        return Attacks.rookAttacks(position, pieces & ~(kings & (whiteToMove ? whitePieces : blackPieces)));
     }
 
     private long tilesAttackedKnight(final int position, boolean checkPins) {
-        long tiles = 0L;
-
-        for (int vector : KNIGHT_VECTORS) {
-            if (!(((vector == -6 || vector == 10) && position % 8 == 6) ||
-                    ((vector == -6 || vector == 10 || vector == 17 || vector == -15) && position % 8 == 7) ||
-                    ((vector == 6 || vector == -10 || vector == -17 || vector == 15) && position % 8 == 0) ||
-                    ((vector == 6 || vector == -10) && position % 8 == 1)) && (position + vector >= 0 && position + vector < 64) &&
-                    (!checkPins || (((diagonalLeftPin | diagonalRightPin | verticalPin | horizontalPin) >> position) & 1) == 0)) {
-
-                tiles |= (1L << (position + vector));
-            }
+        if (checkPins) {
+            return Attacks.KNIGHT_ATTACKS[position] & pinRay(position);
         }
-        return tiles;
+        return Attacks.KNIGHT_ATTACKS[position];
     }
 
     private long tilesAttackedBishop(final int position, boolean checkPins) {
-        long tiles = 0L;
-
-        for (int i = 1; i < 8; i += 2) {
-            if (!checkPins || (i % 4 == 1 && (((diagonalLeftPin | verticalPin | horizontalPin) >> position) & 1) == 0) ||
-                    (i % 4 == 3 && (((verticalPin | diagonalRightPin | horizontalPin) >> position) & 1) == 0)) {
-                int vector = SLIDE_VECTORS[i];
-                int pos = position + vector;
-                for (int j = 0; j < DISTANCE_TO_EDGE[position][i]; j++) {
-                    tiles |= (1L << pos);
-                    if (((pieces >> pos) & 1) == 1) {
-                        if (!checkPins && (((kings & (whiteToMove ? whitePieces : blackPieces)) >> pos) & 1) == 1) {
-                            tiles |= (1L << (pos + vector));
-                        }
-                        break;
-                    }
-                    pos += vector;
-                }
-            }
+        if (checkPins) {
+            return Attacks.bishopAttacks(position, pieces) & pinRay(position);
         }
-        return tiles;
+        return Attacks.bishopAttacks(position, pieces & ~(kings & (whiteToMove ? whitePieces : blackPieces)));
     }
 
-    private long tilesAttackedPawn(final int position, boolean checkPins, boolean opposite) {
-        long tiles = 0L;
+    private long pinRay(final int position) {
+        if (((verticalPin >> position) & 1) == 1) {
+            return Attacks.LINE_MASKS[0][position];
+        } else if (((diagonalRightPin >> position) & 1) == 1) {
+            return Attacks.LINE_MASKS[1][position];
+        } else if (((horizontalPin >> position) & 1) == 1) {
+            return Attacks.LINE_MASKS[2][position];
+        } else if (((diagonalLeftPin >> position) & 1) == 1) {
+            return Attacks.LINE_MASKS[3][position];
+        }
+        return -1L;
+    }
 
-        if (position % 8 != 0 && (!checkPins || (((verticalPin |
-                (whiteToMove ? diagonalRightPin : diagonalLeftPin) | horizontalPin) >> position) & 1) == 0)) {
-            tiles |= (1L << ((whiteToMove ^ opposite) ? (position - 9) : (position + 7)));
-        }
-        if (position % 8 != 7 && (!checkPins || ((((whiteToMove ? diagonalLeftPin : diagonalRightPin)
-                | verticalPin | horizontalPin) >> position) & 1) == 0)) {
-            tiles |= (1L << ((whiteToMove ^ opposite) ? (position - 7) : (position + 9)));
+    private long tilesAttackedPawn(final int position, boolean checkPins, boolean opposite) {
+        long tiles = Attacks.PAWN_ATTACKS[(whiteToMove ^ opposite) ? 0 : 1][position];
+        if (checkPins) {
+            return tiles & pinRay(position);
         }
-
         return tiles;
     }
 
@@ -649,6 +860,7 @@ public class Board {
     }
 
     public void makeMove(int move) {
+        saveState();
         if (whiteToMove) {
             makeWhiteMove(move);
         } else {
@@ -1053,36 +1265,89 @@ public class Board {
             unMakeWhiteMove(move);
         }
 
-        int newEnPassant = (move >> 24) & 0b1111;
-        if (enPassantColumn != newEnPassant) {
-            if (enPassantColumn != 8) {
-                zobristKey ^= GameLogic.EN_PASSANT_COLUMN_HASH[enPassantColumn];
-            }
-            if (newEnPassant != 8) {
-                zobristKey ^= GameLogic.EN_PASSANT_COLUMN_HASH[newEnPassant];
-            }
-        }
-        enPassantColumn = newEnPassant;
-
-        int newCastleRights = (move >> 28) & 0b1111;
-        if (castleRights != newCastleRights) {
-            for (int i = 0; i < 4; i++) {
-                if (((newCastleRights >> i) & 1) != ((castleRights >> i) & 1)) {
-                    zobristKey ^= GameLogic.CASTLE_RIGHTS_HASH[3 - i];
-                }
-            }
-        }
-        castleRights = newCastleRights;
-
+        enPassantColumn = (move >> 24) & 0b1111;
+        castleRights = (move >> 28) & 0b1111;
         halfMoveCounter = (move >> 17) & 0b1111111;
 
         pieces = whitePieces | blackPieces;
         whiteToMove = !whiteToMove;
+        restoreState();
+    }
+
+    // passes the turn without moving, only ever made by the search and never while in check
+    public void makeNullMove() {
+        saveState();
+        if (enPassantColumn != 8) {
+            zobristKey ^= GameLogic.EN_PASSANT_COLUMN_HASH[enPassantColumn];
+            enPassantColumn = 8;
+        }
+        // a position before the null move can not be repeated after it
+        halfMoveCounter = 0;
+        whiteToMove = !whiteToMove;
         zobristKey ^= GameLogic.WHITE_TO_MOVE_HASH;
         updatePins();
         checkChecks();
     }
 
+    public void unMakeNullMove() {
+        long flags = states[stateCount - STATE_SIZE + 7];
+        enPassantColumn = (int) (flags >> 8) & 0b1111;
+        halfMoveCounter = (int) (flags >> 16) & 0xff;
+        whiteToMove = !whiteToMove;
+        restoreState();
+    }
+
+    public boolean isRepetition() {
+        // the key saved by every makeMove doubles as the position history; only positions with the same
+        // side to move since the last capture or pawn move can repeat
+        int oldest = Math.max(0, stateCount - halfMoveCounter * STATE_SIZE);
+        for (int i = stateCount - 2 * STATE_SIZE; i >= oldest; i -= 2 * STATE_SIZE) {
+            if (states[i] == zobristKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isInsufficientMaterial() {
+        return whitePawnsMaterial + blackPawnsMaterial == 0 && whiteMaterial <= 300 && blackMaterial <= 300;
+    }
+
+    private void saveState() {
+        if (stateCount + STATE_SIZE > states.length) {
+            states = Arrays.copyOf(states, states.length * 2);
+        }
+        long[] state = states;
+        int i = stateCount;
+        state[i] = zobristKey;
+        state[i + 1] = tilesAttacked;
+        state[i + 2] = tilesToStopCheck;
+        state[i + 3] = verticalPin;
+        state[i + 4] = horizontalPin;
+        state[i + 5] = diagonalRightPin;
+        state[i + 6] = diagonalLeftPin;
+        // a normal move carries en passant and the halfmove counter itself, a null move reads them back from here
+        state[i + 7] = (inCheck ? 1 : 0) | (inDoubleCheck ? 2 : 0) | (enPassantProtection ? 4 : 0) | (enPassantColumn << 8) |
+                (halfMoveCounter << 16);
+        stateCount += STATE_SIZE;
+    }
+
+    private void restoreState() {
+        stateCount -= STATE_SIZE;
+        long[] state = states;
+        int i = stateCount;
+        zobristKey = state[i];
+        tilesAttacked = state[i + 1];
+        tilesToStopCheck = state[i + 2];
+        verticalPin = state[i + 3];
+        horizontalPin = state[i + 4];
+        diagonalRightPin = state[i + 5];
+        diagonalLeftPin = state[i + 6];
+        inCheck = (state[i + 7] & 1) != 0;
+        inDoubleCheck = (state[i + 7] & 2) != 0;
+        enPassantProtection = (state[i + 7] & 4) != 0;
+    }
+
     private void unMakeWhiteMove(int move) {
 
         int startPos = (move >> 9) & 0b111111;
@@ -1097,74 +1362,49 @@ public class Board {
 
             if (((queens >> endPos) & 1) == 1) {
                 queens ^= endMask;
-                zobristKey ^= GameLogic.WHITE_QUEEN_HASH[endPos];
                 whitePawnsMaterial += 100;
                 whiteMaterial -= 900;
             } else if (((knights >> endPos) & 1) == 1) {
                 knights ^= endMask;
-                zobristKey ^= GameLogic.WHITE_KNIGHT_HASH[endPos];
                 whitePawnsMaterial += 100;
                 whiteMaterial -= 300;
             } else if (((rooks >> endPos) & 1) == 1) {
                 rooks ^= endMask;
-                zobristKey ^= GameLogic.WHITE_ROOK_HASH[endPos];
                 whitePawnsMaterial += 100;
                 whiteMaterial -= 500;
             } else {
                 bishops ^= endMask;
-                zobristKey ^= GameLogic.WHITE_BISHOP_HASH[endPos];
                 whitePawnsMaterial += 100;
                 whiteMaterial -= 300;
             }
 
             pawns ^= startMask;
-            zobristKey ^= GameLogic.WHITE_PAWN_HASH[startPos];
-
-            inCheck = ((move & 2) == 2);
-            inDoubleCheck = ((move & 1) == 1);
 
         } else {
             if (((queens >> endPos) & 1) == 1) {
                 queens ^= (startMask | endMask);
-                zobristKey ^= GameLogic.WHITE_QUEEN_HASH[startPos];
-                zobristKey ^= GameLogic.WHITE_QUEEN_HASH[endPos];
             } else if (((knights >> endPos) & 1) == 1) {
                 knights ^= (startMask | endMask);
-                zobristKey ^= GameLogic.WHITE_KNIGHT_HASH[startPos];
-                zobristKey ^= GameLogic.WHITE_KNIGHT_HASH[endPos];
             } else if (((rooks >> endPos) & 1) == 1) {
                 rooks ^= (startMask | endMask);
-                zobristKey ^= GameLogic.WHITE_ROOK_HASH[startPos];
-                zobristKey ^= GameLogic.WHITE_ROOK_HASH[endPos];
             } else if (((bishops >> endPos) & 1) == 1){
                 bishops ^= (startMask | endMask);
-                zobristKey ^= GameLogic.WHITE_BISHOP_HASH[startPos];
-                zobristKey ^= GameLogic.WHITE_BISHOP_HASH[endPos];
             } else if (((kings >> endPos) & 1) == 1){
                 kings ^= (startMask | endMask);
-                zobristKey ^= GameLogic.WHITE_KING_HASH[startPos];
-                zobristKey ^= GameLogic.WHITE_KING_HASH[endPos];
                 if (Math.abs(startPos - endPos) == 2) {
                     if (endPos == 58) {
                         rooks ^= (9L << 56);
                         whitePieces ^= (9L << 56);
-                        zobristKey ^= GameLogic.WHITE_ROOK_HASH[56];
-                        zobristKey ^= GameLogic.WHITE_ROOK_HASH[59];
                     } else {
                         rooks ^= (5L << 61);
                         whitePieces ^= (5L << 61);
-                        zobristKey ^= GameLogic.WHITE_ROOK_HASH[61];
-                        zobristKey ^= GameLogic.WHITE_ROOK_HASH[63];
                     }
                 }
             } else {
                 pawns ^= (startMask | endMask);
-                zobristKey ^= GameLogic.WHITE_PAWN_HASH[startPos];
-                zobristKey ^= GameLogic.WHITE_PAWN_HASH[endPos];
                 if (takenPiece == 0 && startPos % 8 != endPos % 8) {
                     long takenMask = 1L << (endPos + 8);
                     pawns ^= takenMask;
-                    zobristKey ^= GameLogic.BLACK_PAWN_HASH[endPos + 8];
                     blackPieces ^= takenMask;
                     blackPawnsMaterial += 100;
                 }
@@ -1177,31 +1417,26 @@ public class Board {
             switch (takenPiece) {
                 case PAWN_MASK:
                     pawns ^= endMask;
-                    zobristKey ^= GameLogic.BLACK_PAWN_HASH[endPos];
                     blackPawnsMaterial += 100;
                     blackPieces ^= endMask;
                     break;
                 case BISHOP_MASK:
                     bishops ^= endMask;
-                    zobristKey ^= GameLogic.BLACK_BISHOP_HASH[endPos];
                     blackMaterial += 300;
                     blackPieces ^= endMask;
                     break;
                 case KNIGHT_MASK:
                     knights ^= endMask;
-                    zobristKey ^= GameLogic.BLACK_KNIGHT_HASH[endPos];
                     blackMaterial += 300;
                     blackPieces ^= endMask;
                     break;
                 case ROOK_MASK:
                     rooks ^= endMask;
-                    zobristKey ^= GameLogic.BLACK_ROOK_HASH[endPos];
                     blackMaterial += 500;
                     blackPieces ^= endMask;
                     break;
                 default:
                     queens ^= endMask;
-                    zobristKey ^= GameLogic.BLACK_QUEEN_HASH[endPos];
                     blackMaterial += 900;
                     blackPieces ^= endMask;
                     break;
@@ -1223,75 +1458,50 @@ public class Board {
 
             if (((queens >> endPos) & 1) == 1) {
                 queens ^= endMask;
-                zobristKey ^= GameLogic.BLACK_QUEEN_HASH[endPos];
                 blackPawnsMaterial += 100;
                 blackMaterial -= 900;
             } else if (((knights >> endPos) & 1) == 1) {
                 knights ^= endMask;
-                zobristKey ^= GameLogic.BLACK_KNIGHT_HASH[endPos];
                 blackPawnsMaterial += 100;
                 blackMaterial -= 300;
             } else if (((rooks >> endPos) & 1) == 1) {
                 rooks ^= endMask;
-                zobristKey ^= GameLogic.BLACK_ROOK_HASH[endPos];
                 blackPawnsMaterial += 100;
                 blackMaterial -= 500;
             } else {
                 bishops ^= endMask;
-                zobristKey ^= GameLogic.BLACK_BISHOP_HASH[endPos];
                 blackPawnsMaterial += 100;
                 blackMaterial -= 300;
             }
 
             pawns ^= startMask;
-            zobristKey ^= GameLogic.BLACK_PAWN_HASH[startPos];
-
-            inCheck = ((move & 2) == 2);
-            inDoubleCheck = ((move & 1) == 1);
 
         } else {
             if (((queens >> endPos) & 1) == 1) {
                 queens ^= (startMask | endMask);
-                zobristKey ^= GameLogic.BLACK_QUEEN_HASH[startPos];
-                zobristKey ^= GameLogic.BLACK_QUEEN_HASH[endPos];
             } else if (((knights >> endPos) & 1) == 1) {
                 knights ^= (startMask | endMask);
-                zobristKey ^= GameLogic.BLACK_KNIGHT_HASH[startPos];
-                zobristKey ^= GameLogic.BLACK_KNIGHT_HASH[endPos];
             } else if (((rooks >> endPos) & 1) == 1) {
                 rooks ^= (startMask | endMask);
-                zobristKey ^= GameLogic.BLACK_ROOK_HASH[startPos];
-                zobristKey ^= GameLogic.BLACK_ROOK_HASH[endPos];
             } else if (((bishops >> endPos) & 1) == 1){
                 bishops ^= (startMask | endMask);
-                zobristKey ^= GameLogic.BLACK_BISHOP_HASH[startPos];
-                zobristKey ^= GameLogic.BLACK_BISHOP_HASH[endPos];
             } else if (((kings >> endPos) & 1) == 1){
                 kings ^= (startMask | endMask);
-                zobristKey ^= GameLogic.BLACK_KING_HASH[startPos];
-                zobristKey ^= GameLogic.BLACK_KING_HASH[endPos];
                 if (Math.abs(startPos - endPos) == 2) {
                     if (endPos == 2) {
                         rooks ^= 0b1001;
                         blackPieces ^= 0b1001;
-                        zobristKey ^= GameLogic.BLACK_ROOK_HASH[0];
-                        zobristKey ^= GameLogic.BLACK_ROOK_HASH[3];
                     } else {
                         rooks ^= 0b10100000;
                         blackPieces ^= 0b10100000;
-                        zobristKey ^= GameLogic.BLACK_ROOK_HASH[5];
-                        zobristKey ^= GameLogic.BLACK_ROOK_HASH[7];
                     }
                 }
             } else {
                 pawns ^= (startMask | endMask);
-                zobristKey ^= GameLogic.BLACK_PAWN_HASH[startPos];
-                zobristKey ^= GameLogic.BLACK_PAWN_HASH[endPos];
                 if (takenPiece == 0 && startPos % 8 != endPos % 8) {
                     long takenMask = 1L << (endPos - 8);
                     pawns ^= takenMask;
                     whitePieces ^= takenMask;
-                    zobristKey ^= GameLogic.WHITE_PAWN_HASH[endPos - 8];
                     whitePawnsMaterial += 100;
                 }
             }
@@ -1305,31 +1515,26 @@ public class Board {
                     pawns ^= endMask;
                     whitePawnsMaterial += 100;
                     whitePieces ^= endMask;
-                    zobristKey ^= GameLogic.WHITE_PAWN_HASH[endPos];
                     break;
                 case BISHOP_MASK:
                     bishops ^= endMask;
                     whiteMaterial += 300;
                     whitePieces ^= endMask;
-                    zobristKey ^= GameLogic.WHITE_BISHOP_HASH[endPos];
                     break;
                 case KNIGHT_MASK:
                     knights ^= endMask;
                     whiteMaterial += 300;
                     whitePieces ^= endMask;
-                    zobristKey ^= GameLogic.WHITE_KNIGHT_HASH[endPos];
                     break;
                 case ROOK_MASK:
                     rooks ^= endMask;
                     whiteMaterial += 500;
                     whitePieces ^= endMask;
-                    zobristKey ^= GameLogic.WHITE_ROOK_HASH[endPos];
                     break;
                 default:
                     queens ^= endMask;
                     whiteMaterial += 900;
                     whitePieces ^= endMask;
-                    zobristKey ^= GameLogic.WHITE_QUEEN_HASH[endPos];
                     break;
             }
         }
@@ -1340,35 +1545,28 @@ public class Board {
         horizontalPin = 0;
         diagonalRightPin = 0;
         diagonalLeftPin = 0;
-        long myKing = kings & (whiteToMove ? whitePieces : blackPieces);
-        int kingPos = (myKing > 0 ? (int)(Math.log(myKing) / Math.log(2)) : 63);
-
-        for (int i = 0; i < 8; i++) {
-            int pin = 0;
-            int vector = SLIDE_VECTORS[i];
-            int pos = kingPos + vector;
-            for (int j = 0; j < DISTANCE_TO_EDGE[kingPos][i]; j++) {
-                if ((((whiteToMove ? whitePieces : blackPieces) >> pos) & 1) == 1) {
-                    if (pin > 0) {
-                        break;
-                    } else {
-                        pin = pos;
-                    }
-                } else if ((((whiteToMove ? blackPieces : whitePieces) >> pos) & 1) == 1) {
-                    if (pin > 0 && (((queens | (i % 2 == 0 ? rooks : bishops)) >> pos) & 1) == 1) {
-                        if (i % 4 == 0) {
-                            verticalPin |= (1L << pin);
-                        } else if (i % 4 == 1) {
-                            diagonalRightPin |= (1L << pin);
-                        } else if (i % 4 == 2) {
-                            horizontalPin |= (1L << pin);
-                        } else {
-                            diagonalLeftPin |= (1L << pin);
-                        }
-                    }
-                    break;
-                }
-                pos += vector;
+        long myPieces = (whiteToMove ? whitePieces : blackPieces);
+        long enemyPieces = (whiteToMove ? blackPieces : whitePieces);
+        int kingPos = Bitboards.lsb(kings & myPieces);
+
+        // enemy sliders that would see the king if our own pieces were removed
+        long snipers = ((Attacks.rookAttacks(kingPos, enemyPieces) & (rooks | queens)) |
+                (Attacks.bishopAttacks(kingPos, enemyPieces) & (bishops | queens))) & enemyPieces;
+        while (snipers != 0) {
+            int pos = Bitboards.lsb(snipers);
+            snipers = Bitboards.popLsb(snipers);
+            long blockers = Bitboards.BETWEEN[kingPos][pos] & pieces;
+            if (blockers == 0 || Bitboards.popLsb(blockers) != 0) {
+                continue;
+            }
+            if (((Attacks.LINE_MASKS[0][kingPos] >> pos) & 1) == 1) {
+                verticalPin |= blockers;
+            } else if (((Attacks.LINE_MASKS[1][kingPos] >> pos) & 1) == 1) {
+                diagonalRightPin |= blockers;
+            } else if (((Attacks.LINE_MASKS[2][kingPos] >> pos) & 1) == 1) {
+                horizontalPin |= blockers;
+            } else {
+                diagonalLeftPin |= blockers;
             }
         }
     }
@@ -1380,7 +1578,7 @@ public class Board {
         tilesAttacked = 0;
         enPassantProtection = false;
         long myKing = kings & (whiteToMove ? whitePieces : blackPieces);
-        int kingPos = (myKing > 0 ? (int)(Math.log(myKing) / Math.log(2)) : 63);
+        int kingPos = Bitboards.lsb(myKing);
         long enemyPieces = (whiteToMove ? blackPieces : whitePieces);
         long enemyQueens = enemyPieces & queens;
         long enemyRooks = enemyPieces & rooks;
@@ -1389,8 +1587,8 @@ public class Board {
         long enemyPawns = enemyPieces & pawns;
 
         while (enemyQueens != 0) {
-            int pos = (enemyQueens > 0 ? (int)(Math.log(enemyQueens) / Math.log(2)) : 63);
-            enemyQueens ^= (1L << pos);
+            int pos = Bitboards.lsb(enemyQueens);
+            enemyQueens = Bitboards.popLsb(enemyQueens);
             long temp = tilesAttackedQueen(pos, false);
             tilesAttacked |= temp;
             if ((temp & myKing) != 0) {
@@ -1399,13 +1597,13 @@ public class Board {
                     tilesToStopCheck = 0;
                 } else {
                     inCheck = true;
-                    tilesToStopCheck = GameLogic.getTilesToStopCheck(kingPos, pos);
+                    tilesToStopCheck = Bitboards.BETWEEN[kingPos][pos] | (1L << pos);
                 }
             }
         }
         while (enemyRooks != 0) {
-            int pos = (enemyRooks > 0 ? (int)(Math.log(enemyRooks) / Math.log(2)) : 63);
-            enemyRooks ^= (1L << pos);
+            int pos = Bitboards.lsb(enemyRooks);
+            enemyRooks = Bitboards.popLsb(enemyRooks);
             long temp = tilesAttackedRook(pos, false);
             tilesAttacked |= temp;
             if ((temp & myKing) != 0) {
@@ -1414,13 +1612,13 @@ public class Board {
                     tilesToStopCheck = 0;
                 } else {
                     inCheck = true;
-                    tilesToStopCheck = GameLogic.getTilesToStopCheck(kingPos, pos);
+                    tilesToStopCheck = Bitboards.BETWEEN[kingPos][pos] | (1L << pos);
                 }
             }
         }
         while (enemyBishops != 0) {
-            int pos = (enemyBishops > 0 ? (int)(Math.log(enemyBishops) / Math.log(2)) : 63);
-            enemyBishops ^= (1L << pos);
+            int pos = Bitboards.lsb(enemyBishops);
+            enemyBishops = Bitboards.popLsb(enemyBishops);
             long temp = tilesAttackedBishop(pos, false);
             tilesAttacked |= temp;
             if ((temp & myKing) != 0) {
@@ -1429,13 +1627,13 @@ public class Board {
                     tilesToStopCheck = 0;
                 } else {
                     inCheck = true;
-                    tilesToStopCheck = GameLogic.getTilesToStopCheck(kingPos, pos);
+                    tilesToStopCheck = Bitboards.BETWEEN[kingPos][pos] | (1L << pos);
                 }
             }
         }
         while (enemyKnights != 0) {
-            int pos = (enemyKnights > 0 ? (int)(Math.log(enemyKnights) / Math.log(2)) : 63);
-            enemyKnights ^= (1L << pos);
+            int pos = Bitboards.lsb(enemyKnights);
+            enemyKnights = Bitboards.popLsb(enemyKnights);
             long temp = tilesAttackedKnight(pos, false);
             tilesAttacked |= temp;
             if ((temp & myKing) != 0) {
@@ -1449,8 +1647,8 @@ public class Board {
             }
         }
         while (enemyPawns != 0) {
-            int pos = (enemyPawns > 0 ? (int)(Math.log(enemyPawns) / Math.log(2)) : 63);
-            enemyPawns ^= (1L << pos);
+            int pos = Bitboards.lsb(enemyPawns);
+            enemyPawns = Bitboards.popLsb(enemyPawns);
             long temp = tilesAttackedPawn(pos, false, true);
             tilesAttacked |= temp;
             if ((temp & myKing) != 0) {
@@ -1467,7 +1665,7 @@ public class Board {
             }
         }
         long enemyKing = kings ^ myKing;
-        int altKingPos = (enemyKing > 0 ? (int)(Math.log(enemyKing) / Math.log(2)) : 63);
+        int altKingPos = Bitboards.lsb(enemyKing);
         tilesAttacked |= tilesAttackedKing(altKingPos);
     }
 
@@ -1521,10 +1719,6 @@ public class Board {
 
     private int evaluate() {
 
-        if (generateAllLegalMoves(false).isEmpty()) {
-            return -999999999;
-        }
-
         int eval = 0;
 
         eval += (900 * (Long.bitCount(queens) - (2 * Long.bitCount(blackPieces & queens))));
@@ -1549,11 +1743,112 @@ public class Board {
         return (eval * (whiteToMove ? 1 : -1));
     }
 
-    private int moveScore(int move, int plyFromRoot) {
+    int captureScore(int move) {
+        // most valuable victim first, least valuable attacker breaks ties
+        int victim = (move >> 6) & PIECE_MASK;
+        int attacker = getPieceOnTile((move >> 9) & 0b111111) & PIECE_MASK;
+        int score = (victim == EMPTY_MASK ? PIECE_VALUES[PAWN_MASK] : PIECE_VALUES[victim]) * 10 - attacker;
+        if (((move >> 15) & 0b11) == 1) {
+            return score + (PIECE_VALUES[((move >> 2) & 0b11) + 2] - PIECE_VALUES[PAWN_MASK]) * 10 + GOOD_CAPTURE;
+        }
+        // taking something worth more than the capturing piece wins material whatever the recaptures
+        if (PIECE_VALUES[victim] > PIECE_VALUES[attacker] || seeGE(move, 1)) {
+            return score + GOOD_CAPTURE;
+        }
+        return score + (seeGE(move, 0) ? EQUAL_CAPTURE : 0);
+    }
+
+    // static exchange evaluation: whether the exchange started by move on its target square wins at least threshold
+    // for the side to move, both sides recapturing with their least valuable piece and free to stop at any point.
+    // Sliders behind the pieces that leave the square join in, pins are ignored. Promotions count as even.
+    boolean seeGE(int move, int threshold) {
+        if (((move >> 15) & 0b11) == 1) {
+            return threshold <= 0;
+        }
+        int startPos = (move >> 9) & 0b111111;
+        int endPos = move & 0b111111;
+        int attacker = getPieceOnTile(startPos) & PIECE_MASK;
+        int victim = (move >> 6) & PIECE_MASK;
+        long occupied = pieces ^ (1L << startPos);
+        if (victim == EMPTY_MASK && attacker == PAWN_MASK && startPos % 8 != endPos % 8) {
+            // en passant, the taken pawn is not on the target square
+            victim = PAWN_MASK;
+            occupied ^= 1L << (endPos + (whiteToMove ? 8 : -8));
+        }
+
+        int swap = PIECE_VALUES[victim] - threshold;
+        if (swap < 0) {
+            return false;
+        }
+        swap = PIECE_VALUES[attacker] - swap;
+        if (swap <= 0) {
+            return true;
+        }
+
+        long diagonalSliders = bishops | queens;
+        long straightSliders = rooks | queens;
+        long attackers = attackersTo(endPos, occupied);
+        boolean white = whiteToMove;
+        int result = 1;
+        while (true) {
+            white = !white;
+            attackers &= occupied;
+            long ownAttackers = attackers & (white ? whitePieces : blackPieces);
+            if (ownAttackers == 0) {
+                break;
+            }
+            result ^= 1;
 
-        if (bestMoves.size() > plyFromRoot && bestMoves.get(plyFromRoot) == move) {
-            return 999999;
+            long candidates;
+            if ((candidates = ownAttackers & pawns) != 0) {
+                if ((swap = PIECE_VALUES[PAWN_MASK] - swap) < result) {
+                    break;
+                }
+                occupied ^= Long.lowestOneBit(candidates);
+                attackers |= Attacks.bishopAttacks(endPos, occupied) & diagonalSliders;
+            } else if ((candidates = ownAttackers & knights) != 0) {
+                if ((swap = PIECE_VALUES[KNIGHT_MASK] - swap) < result) {
+                    break;
+                }
+                occupied ^= Long.lowestOneBit(candidates);
+            } else if ((candidates = ownAttackers & bishops) != 0) {
+                if ((swap = PIECE_VALUES[BISHOP_MASK] - swap) < result) {
+                    break;
+                }
+                occupied ^= Long.lowestOneBit(candidates);
+                attackers |= Attacks.bishopAttacks(endPos, occupied) & diagonalSliders;
+            } else if ((candidates = ownAttackers & rooks) != 0) {
+                if ((swap = PIECE_VALUES[ROOK_MASK] - swap) < result) {
+                    break;
+                }
+                occupied ^= Long.lowestOneBit(candidates);
+                attackers |= Attacks.rookAttacks(endPos, occupied) & straightSliders;
+            } else if ((candidates = ownAttackers & queens) != 0) {
+                if ((swap = PIECE_VALUES[QUEEN_MASK] - swap) < result) {
+                    break;
+                }
+                occupied ^= Long.lowestOneBit(candidates);
+                attackers |= (Attacks.bishopAttacks(endPos, occupied) & diagonalSliders) |
+                        (Attacks.rookAttacks(endPos, occupied) & straightSliders);
+            } else {
+                // only the king is left, it can take only if nothing defends the square any more
+                return ((attackers & ~ownAttackers) != 0 ? result ^ 1 : result) == 1;
+            }
         }
+        return result == 1;
+    }
+
+    private long attackersTo(int position, long occupied) {
+        // pawns attack a square from where a pawn of the other colour standing on it would attack
+        return (Attacks.PAWN_ATTACKS[1][position] & pawns & whitePieces) |
+                (Attacks.PAWN_ATTACKS[0][position] & pawns & blackPieces) |
+                (Attacks.KNIGHT_ATTACKS[position] & knights) |
+                (Attacks.KING_ATTACKS[position] & kings) |
+                (Attacks.bishopAttacks(position, occupied) & (bishops | queens)) |
+                (Attacks.rookAttacks(position, occupied) & (rooks | queens));
+    }
+
+    int moveScore(int move) {
 
         int score = 100;
 
@@ -1598,119 +1893,634 @@ public class Board {
                 break;
         }
 
+        // what earlier cutoffs taught us about this move soon outweighs the static guesses above
+        score += stack.history[whiteToMove ? 0 : 1][(move >> 9) & 0b111111][move & 0b111111] >> 1;
+
         return score;
     }
 
-    public void orderMoves(ArrayList<Integer> moves, int plyFromRoot) {
-        ArrayList<Integer> scores = new ArrayList<>();
-        for (int move : moves) {
-            scores.add(moveScore(move, plyFromRoot));
+    public void startSearch(int milliseconds) {
+        startSearch(SearchLimits.moveTime(milliseconds));
+    }
+
+    public void startSearch(SearchLimits limits) {
+        allocateSearchStack();
+        results = new SearchResult[]{SearchResult.NONE};
+        principalVariationLength = 0;
+        stack.clearKillers();
+        stack.ageHistory();
+        searchNodes = 0;
+        stats.reset();
+        // with a clock running a forced move is played at once, other searches still want its score and line
+        int rootMoves = generateMoves(stack.moves[0], GEN_ALL);
+        if (rootMoves == 1 && limits.isTimed()) {
+            results = new SearchResult[]{new SearchResult(stack.moves[0][0], 0, 0, new int[]{stack.moves[0][0]}, 0L, 0L,
+                    false)};
+            return;
         }
+        SearchResult[] lines = new SearchResult[Math.max(1, Math.min(multiPv, rootMoves))];
+        Arrays.fill(lines, SearchResult.NONE);
 
-        for (int i = 0; i < moves.size() - 1; i++) {
-            for (int j = i + 1; j > 0; j--) {
-                int swapIndex = j - 1;
-                if (scores.get(swapIndex) < scores.get(j)) {
+        getTranspositionTable().newSearch();
+        long startTime = System.currentTimeMillis();
+        searchStartTime = startTime;
+        TimeManager timeManager = new TimeManager(limits, startTime);
+        control.start(timeManager.getDeadline(), limits.getMaxNodes());
 
-                    int temp = moves.get(swapIndex);
-                    moves.set(swapIndex, moves.get(j));
-                    moves.set(j, temp);
+        // lazy smp: helpers search copies of the position and only talk to us through the shared table
+        Board[] helpers = new Board[threads - 1];
+        Thread[] helperThreads = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            final Board helper = copy();
+            final int startDepth = 1 + (i + 1) % 2;
+            helper.control.startHelper(control);
+            helpers[i] = helper;
+            helperThreads[i] = new Thread(() -> helper.helperSearch(startDepth), "search-helper-" + (i + 1));
+            helperThreads[i].start();
+        }
 
-                    temp = scores.get(swapIndex);
-                    scores.set(swapIndex, scores.get(j));
-                    scores.set(j, temp);
+        int depth = 1;
+        // the first iteration is too short to reach a clock check and always runs, so that even a search started
+        // with no time left has a move to return
+        while (!control.isStopped() && (depth == 1 || !control.isTimeUp()) && depth <= limits.getMaxDepth()) {
+            lines = searchLines(depth, lines);
+            if (!control.isStopped()) {
+                results = lines;
+                int score = lines[0].getScore();
+                if (limits.isMateFound(score)) {
+                    break;
                 }
+                // a ponder search keeps going until the ponder hit, whatever the clock says
+                boolean enough = timeManager.iterationDone(lines[0].getBestMove(), score, System.currentTimeMillis());
+                if (enough && !control.isPondering()) {
+                    break;
+                }
+            }
+            depth++;
+        }
+
+        searchNodes = control.getNodes();
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i].stopSearch();
+            try {
+                helperThreads[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            searchNodes += helpers[i].control.getNodes();
+            stats.add(helpers[i].stats);
         }
     }
 
-    public void startSearch(int milliseconds) {
-        bestMoves.clear();
-        if (generateAllLegalMoves(false).size() == 1) {
-            bestMoves.add(generateAllLegalMoves(false).get(0));
-            return;
+    // one iteration of every line, best first, or the previous lines when stopped. The last iteration's best line is
+    // followed first, and the window is set from the scores of its best and its last line
+    private SearchResult[] searchLines(int depth, SearchResult[] previous) {
+        int[] line = previous[0].getPrincipalVariation();
+        principalVariationLength = line.length;
+        System.arraycopy(line, 0, principalVariation, 0, line.length);
+        rootLines = (previous.length > 1 ? new SearchResult[previous.length] : null);
+        rootLineMoveCount = 0;
+        for (SearchResult previousLine : previous) {
+            if (previousLine.getBestMove() != 0) {
+                rootLineMoves[rootLineMoveCount++] = compactMove(previousLine.getBestMove());
+            }
         }
+        int score = aspirationSearch(depth, previous[previous.length - 1].getScore(), previous[0].getScore());
+        SearchResult[] lines = rootLines;
+        rootLines = null;
+        if (control.isStopped()) {
+            return previous;
+        }
+        return (lines != null ? lines : new SearchResult[]{newResult(depth, score, false)});
+    }
 
-        cutoffTime = System.currentTimeMillis() + milliseconds;
-        int depth = 1;
-        while (System.currentTimeMillis() < cutoffTime) {
-            search(depth, 0, 0x80000001, 0x7ffffffe);
-            System.out.println(depth);
+    private boolean isRootLineMove(int move) {
+        int compact = compactMove(move);
+        for (int i = 0; i < rootLineMoveCount; i++) {
+            if (rootLineMoves[i] == compact) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the new line one goes ahead of the others, and takes the place of its own move's line if it had one
+    private void publishResult(int depth, int score, boolean partial) {
+        SearchResult best = newResult(depth, score, partial);
+        SearchResult[] current = results;
+        SearchResult[] lines = new SearchResult[current.length];
+        lines[0] = best;
+        int count = 1;
+        for (int i = 0; i < current.length && count < lines.length; i++) {
+            if (current[i].getBestMove() != best.getBestMove()) {
+                lines[count++] = current[i];
+            }
+        }
+        results = lines;
+    }
+
+    private SearchResult newResult(int depth, int score, boolean partial) {
+        // with no legal moves at the root the line stays empty, and pv[0][0] still holds the last search's move
+        int bestMove = (stack.pvLength[0] > 0 ? stack.pv[0][0] : 0);
+        return new SearchResult(bestMove, score, depth, Arrays.copyOf(stack.pv[0], stack.pvLength[0]),
+                control.getNodes(), System.currentTimeMillis() - searchStartTime, partial);
+    }
+
+    private void allocateSearchStack() {
+        if (stack == null) {
+            if (history == null) {
+                history = SearchStack.newHistory();
+            }
+            stack = new SearchStack(this, history);
+        }
+    }
+
+    private void savePrincipalVariation() {
+        principalVariationLength = stack.pvLength[0];
+        System.arraycopy(stack.pv[0], 0, principalVariation, 0, principalVariationLength);
+    }
+
+    private void helperSearch(int depth) {
+        allocateSearchStack();
+        stats.reset();
+        int score = 0;
+        while (!control.isStopped() && depth < SearchStack.MAX_PLY) {
+            score = aspirationSearch(depth, score, score);
+            if (!control.isStopped()) {
+                savePrincipalVariation();
+            }
             depth++;
         }
     }
 
-    private int search(int depth, int plyFromRoot, int alpha, int beta) {
+    // the window spans the previous scores of the last and the best line, the same score with a single line
+    private int aspirationSearch(int depth, int lowScore, int highScore) {
+        // the first iterations are too unstable to guess from, and mate scores jump by more than any window
+        if (depth < 4 || Math.abs(lowScore) > MATE_BOUND || Math.abs(highScore) > MATE_BOUND) {
+            return searchRoot(depth, -INFINITY, INFINITY);
+        }
+        int delta = ASPIRATION_WINDOW;
+        int alpha = lowScore - delta;
+        int beta = highScore + delta;
+        while (true) {
+            stats.aspirationSearches++;
+            int score = searchRoot(depth, alpha, beta);
+            if (control.isStopped()) {
+                return score;
+            }
+            // widen on the side that failed, twice as far every time, and drop the window once it is wider than a queen
+            delta *= 2;
+            boolean open = delta > PIECE_VALUES[QUEEN_MASK];
+            if (score <= alpha) {
+                stats.aspirationFailLows++;
+                alpha = (open ? -INFINITY : lowScore - delta);
+            } else if (score >= beta) {
+                stats.aspirationFailHighs++;
+                beta = (open ? INFINITY : highScore + delta);
+            } else {
+                return score;
+            }
+        }
+    }
+
+    private int searchRoot(int depth, int alpha, int beta) {
+        return (rootLines != null ? searchMultiPv(depth, alpha, beta) : search(depth, 0, alpha, beta));
+    }
 
-        if (System.currentTimeMillis() > cutoffTime) {
+    // multi pv root: one pass over the root moves that keeps the best of them in rootLines with exact scores. Until
+    // every line is filled a move has to beat alpha, after that only the last line, and most moves are proven not to
+    // with a null window that the table entries of the moves before them make cheap. Returns the score of the best
+    // line, or alpha when not every line got a score above it
+    private int searchMultiPv(int depth, int alpha, int beta) {
+        stack.pvLength[0] = 0;
+        followPv = true;
+        if (control.countNode()) {
             return 0;
         }
-
-        if (plyFromRoot > 0) {
-            if (history.contains(zobristKey)) {
+        stack.staticEvals[0] = (inCheck ? SearchStack.NO_EVAL : evaluate());
+
+        int hashMove = 0;
+        long entry = table.probe(zobristKey);
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+        }
+        // the first move searched is the head of the last iteration's best line, which the principal variation goes on with
+        followPv = (principalVariationLength > 0);
+        MovePicker picker = stack.pickers[0];
+        picker.init(hashMove, stack.killers[0][0], stack.killers[0][1], true);
+
+        SearchResult[] lines = rootLines;
+        int lineCount = 0;
+        int legalMoves = 0;
+        int[] quiets = stack.quietsSearched[0];
+        int quietCount = 0;
+        int lineMoveIndex = 0;
+        int move;
+        while (true) {
+            // the heads of the last lines first, so that the bar is as high as it gets before the other moves
+            if (lineMoveIndex < rootLineMoveCount) {
+                move = expandMove(rootLineMoves[lineMoveIndex++]);
+                if (move == 0) {
+                    continue;
+                }
+            } else if ((move = picker.next()) == 0) {
+                break;
+            } else if (isRootLineMove(move)) {
+                continue;
+            }
+            legalMoves++;
+            boolean quiet = isQuiet(move);
+            int bar = (lineCount < lines.length ? alpha : lines[lineCount - 1].getScore());
+            boolean reducible = depth >= 3 && legalMoves > 3 && !inCheck && quiet;
+            makeMove(move);
+            int evaluation;
+            if (legalMoves == 1) {
+                evaluation = -search(depth - 1, 1, -beta, -bar);
+            } else {
+                int reduction = 0;
+                if (reducible && !inCheck) {
+                    reduction = REDUCTIONS[Math.min(depth, 63)][Math.min(legalMoves, 63)] - 1;
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+                stats.nullWindowSearches++;
+                evaluation = -search(depth - 1 - reduction, 1, -bar - 1, -bar);
+                if (reduction > 0) {
+                    stats.lateMoveReductions++;
+                    if (evaluation > bar) {
+                        stats.lmrResearches++;
+                        evaluation = -search(depth - 1, 1, -bar - 1, -bar);
+                    }
+                }
+                if (evaluation > bar && evaluation < beta) {
+                    stats.pvsResearches++;
+                    evaluation = -search(depth - 1, 1, -beta, -bar);
+                }
+            }
+            unMakeMove(move);
+            followPv = false;
+            if (control.isStopped()) {
                 return 0;
             }
+            if (evaluation >= beta) {
+                if (quiet) {
+                    stack.storeKiller(0, compactMove(move));
+                    stack.updateHistory(whiteToMove, compactMove(move), depth, quiets, quietCount);
+                }
+                // the best line is above the window, which has to widen before any line can be trusted
+                stack.updatePv(0, move);
+                promoteRootMove(move, depth, beta);
+                return beta;
+            }
+            if (quiet) {
+                quiets[quietCount++] = compactMove(move);
+            }
+            if (evaluation > bar) {
+                // into the lines in score order, behind equal scores, pushing the last one out once they are full
+                stack.updatePv(0, move);
+                int index = Math.min(lineCount, lines.length - 1);
+                while (index > 0 && lines[index - 1].getScore() < evaluation) {
+                    lines[index] = lines[index - 1];
+                    index--;
+                }
+                lines[index] = newResult(depth, evaluation, false);
+                lineCount = Math.min(lineCount + 1, lines.length);
+                if (index == 0) {
+                    promoteRootMove(move, depth, evaluation);
+                }
+            }
+        }
+        if (lineCount < lines.length) {
+            return alpha;
+        }
+        table.store(zobristKey, compactMove(lines[0].getBestMove()), scoreToTable(lines[0].getScore(), 0), depth,
+                TranspositionTable.EXACT);
+        return lines[0].getScore();
+    }
+
+    private int search(int depth, int plyFromRoot, int alpha, int beta) {
+
+        stack.pvLength[plyFromRoot] = plyFromRoot;
+        if (plyFromRoot == 0) {
+            followPv = true;
+        }
+        if (control.countNode()) {
+            return 0;
         }
 
-        if (depth == 0) {
-            return quiescenceSearch(alpha, beta);
+        if (plyFromRoot > 0 && (halfMoveCounter >= 100 || isRepetition() || isInsufficientMaterial())) {
+            return 0;
         }
 
-        ArrayList<Integer> moves = generateAllLegalMoves(false);
-        if (moves.isEmpty()) {
-            return (inCheck ? -999999999 : 0);
+        if (depth == 0 || plyFromRoot >= SearchStack.MAX_PLY - 2) {
+            return quiescenceSearch(plyFromRoot, alpha, beta);
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        int hashMove = 0;
+        long entry = table.probe(zobristKey);
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            // no cutoffs in PV nodes, they would cut the principal variation short and hide what the line is worth
+            if (plyFromRoot > 0 && !pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), plyFromRoot);
+                switch (TranspositionTable.bound(entry)) {
+                    case TranspositionTable.EXACT:
+                        return score;
+                    case TranspositionTable.LOWER_BOUND:
+                        if (score >= beta) {
+                            return beta;
+                        }
+                        break;
+                    default:
+                        if (score <= alpha) {
+                            return alpha;
+                        }
+                        break;
+                }
+            }
         }
 
-        orderMoves(moves, plyFromRoot);
+        int staticEval = (inCheck ? 0 : evaluate());
+        stack.staticEvals[plyFromRoot] = (inCheck ? SearchStack.NO_EVAL : staticEval);
+        // the frontier prunings below compare against alpha and would throw away mate scores
+        boolean frontier = !pvNode && !inCheck && Math.abs(alpha) < MATE_BOUND;
+        // better than our last turn, so the position is heading our way and pruning can be less eager; counted as
+        // improving when there is nothing to compare with
+        boolean improving = plyFromRoot < 2 || stack.staticEvals[plyFromRoot - 2] == SearchStack.NO_EVAL ||
+                staticEval > stack.staticEvals[plyFromRoot - 2];
 
-        for (int move : moves) {
+        // razoring: far enough below alpha at the last plies, only a tactic can help, and quiescence looks for those
+        if (frontier && depth < RAZOR_MARGINS.length && staticEval + RAZOR_MARGINS[depth] <= alpha) {
+            int score = quiescenceSearch(plyFromRoot, alpha, alpha + 1);
+            if (control.isStopped()) {
+                return 0;
+            }
+            if (score <= alpha) {
+                stats.razorPrunes++;
+                return alpha;
+            }
+        }
+
+        // null move: if passing the turn still fails high, a real move almost surely does too. Not in pv nodes, not
+        // twice in a row, and never in check or with only pawns left, where zugzwang makes passing a real advantage
+        if (plyFromRoot > 0 && depth >= 3 && !pvNode && !inCheck && beta < MATE_BOUND &&
+                plyFromRoot >= nullMoveMinPly && !stack.nullMoves[plyFromRoot - 1] &&
+                (whiteToMove ? whiteMaterial : blackMaterial) > 0 && staticEval >= beta) {
+            int reduction = (depth > 6 ? 3 : 2);
+            stats.nullMoveSearches++;
+            stack.nullMoves[plyFromRoot] = true;
+            makeNullMove();
+            int evaluation = -search(depth - reduction - 1, plyFromRoot + 1, -beta, -beta + 1);
+            unMakeNullMove();
+            stack.nullMoves[plyFromRoot] = false;
+            if (control.isStopped()) {
+                return 0;
+            }
+            if (evaluation >= beta) {
+                stats.nullMoveCutoffs++;
+                if (depth < NULL_MOVE_VERIFY_DEPTH || nullMoveMinPly > 0) {
+                    return beta;
+                }
+                // deep cutoffs are searched again without null moves near the root of this subtree
+                stats.nullMoveVerifications++;
+                nullMoveMinPly = plyFromRoot + 3 * (depth - reduction) / 4;
+                evaluation = search(depth - reduction, plyFromRoot, beta - 1, beta);
+                nullMoveMinPly = 0;
+                if (control.isStopped()) {
+                    return 0;
+                }
+                if (evaluation >= beta) {
+                    return beta;
+                }
+                stats.nullMoveVerificationFails++;
+            }
+        }
+
+        MovePicker picker = stack.pickers[plyFromRoot];
+        // along the previous iteration's principal variation its move goes first, ahead of whatever the table holds
+        if (followPv) {
+            if (plyFromRoot < principalVariationLength) {
+                hashMove = compactMove(principalVariation[plyFromRoot]);
+            } else {
+                followPv = false;
+            }
+        }
+        picker.init(hashMove, stack.killers[plyFromRoot][0], stack.killers[plyFromRoot][1], true);
+
+        int bestMove = 0;
+        int bound = TranspositionTable.UPPER_BOUND;
+        int legalMoves = 0;
+        int[] quiets = stack.quietsSearched[plyFromRoot];
+        int quietCount = 0;
+        int quietMoves = 0;
+        int[][] history = stack.history[whiteToMove ? 0 : 1];
+        int move;
+        while ((move = picker.next()) != 0) {
+            legalMoves++;
+            boolean quiet = isQuiet(move);
+            if (quiet) {
+                quietMoves++;
+            }
+            // frontier pruning of quiet moves that do not give check and have not been cutting off lately, never the
+            // first move
+            if (frontier && quiet && legalMoves > 1 && history[(move >> 9) & 0b111111][move & 0b111111] <
+                    PRUNE_HISTORY_LIMIT && !givesCheck(move)) {
+                int[] lateMoveCounts = LATE_MOVE_COUNTS[improving ? 1 : 0];
+                if (depth < lateMoveCounts.length && quietMoves > lateMoveCounts[depth]) {
+                    // late move pruning: this far down a well ordered list quiet moves almost never cut off
+                    stats.lateMovePrunes++;
+                    continue;
+                }
+                if (depth < FUTILITY_MARGINS.length && staticEval + FUTILITY_MARGINS[depth] <= alpha) {
+                    // futility pruning: a quiet move will not win back the margin in the plies left
+                    stats.futilityPrunes++;
+                    continue;
+                }
+            }
+            boolean reducible = depth >= 3 && legalMoves > 3 && !inCheck && quiet;
             makeMove(move);
-            int evaluation = -search(depth - 1, plyFromRoot + 1, -beta, -alpha);
+            int evaluation;
+            if (legalMoves == 1) {
+                evaluation = -search(depth - 1, plyFromRoot + 1, -beta, -alpha);
+            } else {
+                // late quiet moves rarely turn out best after good ordering, so they are searched shallower first,
+                // less so in pv nodes; checks are never reduced
+                int reduction = 0;
+                if (reducible && !inCheck) {
+                    reduction = REDUCTIONS[Math.min(depth, 63)][Math.min(legalMoves, 63)] - (beta - alpha > 1 ? 1 : 0);
+                    reduction = Math.max(0, Math.min(reduction, depth - 2));
+                }
+                // later moves only have to be proven worse than the best so far, which a null window does cheaply
+                stats.nullWindowSearches++;
+                evaluation = -search(depth - 1 - reduction, plyFromRoot + 1, -alpha - 1, -alpha);
+                if (reduction > 0) {
+                    stats.lateMoveReductions++;
+                    if (evaluation > alpha) {
+                        stats.lmrResearches++;
+                        evaluation = -search(depth - 1, plyFromRoot + 1, -alpha - 1, -alpha);
+                    }
+                }
+                if (evaluation > alpha && evaluation < beta) {
+                    stats.pvsResearches++;
+                    evaluation = -search(depth - 1, plyFromRoot + 1, -beta, -alpha);
+                }
+            }
             unMakeMove(move);
-            if (System.currentTimeMillis() > cutoffTime) {
+            // only the first move of a node can continue the previous principal variation
+            followPv = false;
+            if (control.isStopped()) {
                 return 0;
             }
             if (evaluation >= beta) {
+                if (quiet) {
+                    stack.storeKiller(plyFromRoot, compactMove(move));
+                    stack.updateHistory(whiteToMove, compactMove(move), depth, quiets, quietCount);
+                }
+                if (plyFromRoot == 0) {
+                    // a root fail high is better than anything found so far, keep it in case time runs out
+                    stack.updatePv(plyFromRoot, move);
+                    promoteRootMove(move, depth, beta);
+                }
+                table.store(zobristKey, compactMove(move), scoreToTable(beta, plyFromRoot), depth, TranspositionTable.LOWER_BOUND);
                 return beta;
             }
+            if (quiet) {
+                quiets[quietCount++] = compactMove(move);
+            }
             if (evaluation > alpha) {
                 alpha = evaluation;
-                if (bestMoves.size() > plyFromRoot) {
-                    bestMoves.set(plyFromRoot, move);
-                } else {
-                    bestMoves.add(move);
+                bestMove = compactMove(move);
+                bound = TranspositionTable.EXACT;
+                stack.updatePv(plyFromRoot, move);
+                if (plyFromRoot == 0) {
+                    promoteRootMove(move, depth, evaluation);
                 }
             }
         }
+        if (legalMoves == 0) {
+            return (inCheck ? -MATE_SCORE + plyFromRoot : 0);
+        }
+        table.store(zobristKey, bestMove, scoreToTable(alpha, plyFromRoot), depth, bound);
         return alpha;
     }
 
-    public int quiescenceSearch(int alpha, int beta) {
-        if (System.currentTimeMillis() > cutoffTime) {
+    public int quiescenceSearch(int plyFromRoot, int alpha, int beta) {
+        if (control.countNode()) {
             return 0;
         }
-        int eval = evaluate();
-        if (eval >= beta) {
-            return beta;
+        stats.quiescenceNodes++;
+        if (plyFromRoot >= SearchStack.MAX_PLY - 2) {
+            return evaluate();
+        }
+
+        // every entry is at least as deep as a quiescence search, whose own entries have depth 0
+        int hashMove = 0;
+        long entry = table.probe(zobristKey);
+        if (entry != 0) {
+            int score = scoreFromTable(TranspositionTable.score(entry), plyFromRoot);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER_BOUND && score >= beta) ||
+                    (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                stats.quiescenceTableCutoffs++;
+                return Math.max(alpha, Math.min(beta, score));
+            }
+            hashMove = TranspositionTable.move(entry);
+            if (hashMove != 0 && !inCheck) {
+                // quiet moves and losing captures from deeper searches are not looked at here
+                int fullMove = expandMove(hashMove);
+                if (fullMove == 0 || isQuiet(fullMove) || !seeGE(fullMove, 0)) {
+                    hashMove = 0;
+                }
+            }
         }
-        alpha = Math.max(alpha, eval);
 
-        ArrayList<Integer> moves = generateAllLegalMoves(!inCheck);
-        orderMoves(moves, 100);
-        for (int move : moves) {
+        // no standing pat while in check, every evasion is searched so that mates are seen
+        int standPat = 0;
+        int originalAlpha = alpha;
+        if (!inCheck) {
+            standPat = evaluate();
+            if (standPat >= beta) {
+                table.store(zobristKey, 0, scoreToTable(beta, plyFromRoot), 0, TranspositionTable.LOWER_BOUND);
+                return beta;
+            }
+            // big delta: not even winning a queen, or promoting to one, would get back to alpha
+            int bestGain = PIECE_VALUES[QUEEN_MASK];
+            if ((pawns & (whiteToMove ? whitePieces & 0xff00L : blackPieces & 0xff000000000000L)) != 0) {
+                bestGain += PIECE_VALUES[QUEEN_MASK] - PIECE_VALUES[PAWN_MASK];
+            }
+            if (standPat + bestGain + DELTA_MARGIN < alpha) {
+                stats.deltaPrunes++;
+                return alpha;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+
+        MovePicker picker = stack.pickers[plyFromRoot];
+        picker.init(hashMove, 0, 0, inCheck);
+        int bestMove = 0;
+        int legalMoves = 0;
+        int move;
+        while ((move = picker.next()) != 0) {
+            legalMoves++;
+            // delta pruning: skip captures that can not raise alpha even if the taken piece comes for free
+            if (!inCheck && ((move >> 15) & 0b11) != 1) {
+                int victim = (move >> 6) & PIECE_MASK;
+                if (standPat + PIECE_VALUES[victim == EMPTY_MASK ? PAWN_MASK : victim] + DELTA_MARGIN <= alpha) {
+                    stats.deltaPrunes++;
+                    continue;
+                }
+            }
             makeMove(move);
-            eval = -quiescenceSearch(-beta, -alpha);
+            int eval = -quiescenceSearch(plyFromRoot + 1, -beta, -alpha);
             unMakeMove(move);
-            if (System.currentTimeMillis() > cutoffTime) {
+            if (control.isStopped()) {
                 return 0;
             }
 
             if (eval >= beta) {
+                table.store(zobristKey, compactMove(move), scoreToTable(beta, plyFromRoot), 0, TranspositionTable.LOWER_BOUND);
                 return beta;
             }
-            alpha = Math.max(alpha, eval);
+            if (eval > alpha) {
+                alpha = eval;
+                bestMove = compactMove(move);
+            }
         }
 
+        if (inCheck && legalMoves == 0) {
+            return -MATE_SCORE + plyFromRoot;
+        }
+        table.store(zobristKey, bestMove, scoreToTable(alpha, plyFromRoot), 0,
+                (alpha > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND));
         return alpha;
     }
+
+    private void promoteRootMove(int move, int depth, int score) {
+        // the published best is always searched first, so a different root move that raises alpha mid iteration was
+        // fully searched and beat it; anything cut short by the clock never gets here, its score is not trusted.
+        // Its line is followed first by an aspiration re-search, keeping that order
+        if (move != getBestMove()) {
+            publishResult(depth, score, true);
+            savePrincipalVariation();
+        }
+    }
+
+    static int scoreToTable(int score, int plyFromRoot) {
+        // mate scores are stored relative to the node, not the root
+        if (score > MATE_BOUND && score <= MATE_SCORE) {
+            return score + plyFromRoot;
+        } else if (score < -MATE_BOUND && score >= -MATE_SCORE) {
+            return score - plyFromRoot;
+        }
+        return score;
+    }
+
+    static int scoreFromTable(int score, int plyFromRoot) {
+        if (score > MATE_BOUND && score <= MATE_SCORE) {
+            return score - plyFromRoot;
+        } else if (score < -MATE_BOUND && score >= -MATE_SCORE) {
+            return score + plyFromRoot;
+        }
+        return score;
+    }
 }
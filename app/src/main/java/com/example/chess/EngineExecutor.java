@@ -0,0 +1,153 @@
+package com.example.chess;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class EngineExecutor {
+
+    public interface Listener {
+        void onBestMove(int move, int ponderMove);
+    }
+
+    // one worker, so a new search always queues behind the one it cancelled instead of running next to it
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // one table for the whole game, every search runs on a fresh copy of the board and gets it handed in
+    private final TranspositionTable table = new TranspositionTable(TranspositionTable.DEFAULT_SIZE_MB);
+    // the same goes for the history of quiet moves, which every search ages before it starts
+    private final int[][][] history = SearchStack.newHistory();
+    private int threads = 1;
+
+    // only touched on the ui thread; the listener stays null while pondering, until the predicted move is played
+    private Board searchBoard;
+    private Listener listener;
+    private int generation;
+    private int ponderMove;
+    private boolean ponderFinished;
+    private int ponderBestMove;
+    private int ponderReply;
+
+    // searches a copy of the board on the worker and hands the best move to the listener on the ui thread
+    public void search(Board board, SearchLimits limits, Listener listener) {
+        start(board.copy(), limits, listener);
+    }
+
+    // searches the position after the predicted reply with no deadline, nothing is reported before ponderHit
+    public void ponder(Board board, int predictedMove, SearchLimits limits) {
+        Board copy = board.copy();
+        copy.makeMove(predictedMove);
+        copy.getSearchControl().setPondering(true);
+        start(copy, limits, null);
+        ponderMove = predictedMove;
+    }
+
+    // on a hit the ponder search carries on as the real search, with the time it already used counted against
+    // its budget; on a miss it is cancelled and false tells the caller to start a fresh search
+    public boolean ponderHit(int move, Listener listener) {
+        if (ponderMove == 0 || Board.compactMove(move) != Board.compactMove(ponderMove)) {
+            cancel();
+            return false;
+        }
+        ponderMove = 0;
+        this.listener = listener;
+        if (ponderFinished) {
+            final int id = generation;
+            mainHandler.post(() -> finish(id, ponderBestMove, ponderReply));
+        } else {
+            searchBoard.getSearchControl().setPondering(false);
+        }
+        return true;
+    }
+
+    // search threads for the searches started from now on, the extra ones run lazy smp helpers
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public boolean isSearching() {
+        return listener != null;
+    }
+
+    public boolean isPondering() {
+        return ponderMove != 0;
+    }
+
+    public void cancel() {
+        generation++;
+        if (searchBoard != null) {
+            searchBoard.cancelSearch();
+            searchBoard = null;
+        }
+        listener = null;
+        ponderMove = 0;
+        ponderFinished = false;
+    }
+
+    // nothing from the last game is worth keeping; cleared on the worker, behind the search being cancelled
+    public void newGame() {
+        cancel();
+        worker.execute(() -> {
+            table.clear();
+            SearchStack.clearHistory(history);
+        });
+    }
+
+    public void shutdown() {
+        cancel();
+        mainHandler.removeCallbacksAndMessages(null);
+        worker.shutdown();
+    }
+
+    private void start(final Board copy, SearchLimits limits, Listener listener) {
+        cancel();
+        final int id = generation;
+        copy.setTranspositionTable(table);
+        copy.setHistory(history);
+        copy.setThreads(threads);
+        searchBoard = copy;
+        this.listener = listener;
+        worker.execute(() -> {
+            // a search cancelled while it waited in the queue is not started, one cancelled while running reports
+            // nothing; finish still checks the generation for the ones cancelled after this
+            if (copy.getSearchControl().isCancelled()) {
+                return;
+            }
+            copy.startSearch(limits);
+            if (copy.getSearchControl().isCancelled()) {
+                return;
+            }
+            final int move = copy.getBestMove();
+            final int reply = copy.getPonderMove();
+            mainHandler.post(() -> finish(id, move, reply));
+        });
+    }
+
+    private void finish(int id, int move, int reply) {
+        // results of cancelled searches are dropped, the position may have changed since
+        if (id != generation) {
+            return;
+        }
+        if (listener == null) {
+            // a ponder search that ran out of depth before the user moved, kept for a later hit
+            ponderFinished = true;
+            ponderBestMove = move;
+            ponderReply = reply;
+            return;
+        }
+        Listener result = listener;
+        searchBoard = null;
+        listener = null;
+        result.onBestMove(move, reply);
+    }
+}
@@ -154,23 +154,7 @@ public class GameLogic {
     }
 
     public static int getRow(int tileNum) {
-        if (tileNum < 8) {
-            return 0;
-        } else if (tileNum < 16) {
-            return 1;
-        } else if (tileNum < 24) {
-            return 2;
-        } else if (tileNum < 32) {
-            return 3;
-        } else if (tileNum < 40) {
-            return 4;
-        } else if (tileNum < 48) {
-            return 5;
-        } else if (tileNum < 56) {
-            return 6;
-        } else {
-            return 7;
-        }
+        return Bitboards.row(tileNum);
     }
 
     public static String getPieceName(int piece) {
@@ -204,33 +188,6 @@ public class GameLogic {
         }
     }
 
-    public static long getTilesToStopCheck(int kingPosition, int enemyPosition) {
-        long tiles = 0L;
-        int difference = enemyPosition - kingPosition;
-        if (kingPosition % 8 == enemyPosition % 8) {
-            int vector = 8 * difference / Math.abs(difference);
-            for (int i = kingPosition; i != enemyPosition; i += vector) {
-                tiles |= (1L << (i + vector));
-            }
-        } else if (getRow(kingPosition) == getRow(enemyPosition)) {
-            int vector = difference / Math.abs(difference);
-            for (int i = kingPosition; i != enemyPosition; i += vector) {
-                tiles |= (1L << (i + vector));
-            }
-        } else if (difference % 9 == 0) {
-            int vector = 9 * difference / Math.abs(difference);
-            for (int i = kingPosition; i != enemyPosition; i += vector) {
-                tiles |= (1L << (i + vector));
-            }
-        } else {
-            int vector = 7 * difference / Math.abs(difference);
-            for (int i = kingPosition; i != enemyPosition; i += vector) {
-                tiles |= (1L << (i + vector));
-            }
-        }
-        return tiles;
-    }
-
     public static String getSquares(int move) {
         int pos = (move >> 9) & 0b111111;
         String out = "";
@@ -314,6 +271,17 @@ public class GameLogic {
         return out;
     }
 
+    public static String getMoveList(int[] moves) {
+        StringBuilder out = new StringBuilder();
+        for (int move : moves) {
+            if (out.length() > 0) {
+                out.append(' ');
+            }
+            out.append(getSquares(move));
+        }
+        return out.toString();
+    }
+
     public static int inversePos(final int pos) {
         return 56 - pos + (2 * (pos % 8));
     }
@@ -321,13 +289,13 @@ public class GameLogic {
     public static int queenTableScore(long whiteQueens, long blackQueens) {
         int score = 0;
         while (whiteQueens != 0) {
-            int pos = (whiteQueens > 0 ? (int)(Math.log(whiteQueens) / Math.log(2)) : 63);
-            whiteQueens ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteQueens);
+            whiteQueens = Bitboards.popLsb(whiteQueens);
             score += QUEEN_TABLE[pos];
         }
         while (blackQueens != 0) {
-            int pos = (blackQueens > 0 ? (int)(Math.log(blackQueens) / Math.log(2)) : 63);
-            blackQueens ^= (1L << pos);
+            int pos = Bitboards.lsb(blackQueens);
+            blackQueens = Bitboards.popLsb(blackQueens);
             score -= QUEEN_TABLE[inversePos(pos)];
         }
         return score;
@@ -336,13 +304,13 @@ public class GameLogic {
     public static int rookTableScore(long whiteRooks, long blackRooks) {
         int score = 0;
         while (whiteRooks != 0) {
-            int pos = (whiteRooks > 0 ? (int)(Math.log(whiteRooks) / Math.log(2)) : 63);
-            whiteRooks ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteRooks);
+            whiteRooks = Bitboards.popLsb(whiteRooks);
             score += ROOK_TABLE[pos];
         }
         while (blackRooks != 0) {
-            int pos = (blackRooks > 0 ? (int)(Math.log(blackRooks) / Math.log(2)) : 63);
-            blackRooks ^= (1L << pos);
+            int pos = Bitboards.lsb(blackRooks);
+            blackRooks = Bitboards.popLsb(blackRooks);
             score -= ROOK_TABLE[inversePos(pos)];
         }
         return score;
@@ -351,13 +319,13 @@ public class GameLogic {
     public static int knightTableScore(long whiteKnights, long blackKnights) {
         int score = 0;
         while (whiteKnights != 0) {
-            int pos = (whiteKnights > 0 ? (int)(Math.log(whiteKnights) / Math.log(2)) : 63);
-            whiteKnights ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteKnights);
+            whiteKnights = Bitboards.popLsb(whiteKnights);
             score += KNIGHT_TABLE[pos];
         }
         while (blackKnights != 0) {
-            int pos = (blackKnights > 0 ? (int)(Math.log(blackKnights) / Math.log(2)) : 63);
-            blackKnights ^= (1L << pos);
+            int pos = Bitboards.lsb(blackKnights);
+            blackKnights = Bitboards.popLsb(blackKnights);
             score -= KNIGHT_TABLE[inversePos(pos)];
         }
         return score;
@@ -366,13 +334,13 @@ public class GameLogic {
     public static int bishopTableScore(long whiteBishops, long blackBishops) {
         int score = 0;
         while (whiteBishops != 0) {
-            int pos = (whiteBishops > 0 ? (int)(Math.log(whiteBishops) / Math.log(2)) : 63);
-            whiteBishops ^= (1L << pos);
+            int pos = Bitboards.lsb(whiteBishops);
+            whiteBishops = Bitboards.popLsb(whiteBishops);
             score += BISHOP_TABLE[pos];
         }
         while (blackBishops != 0) {
-            int pos = (blackBishops > 0 ? (int)(Math.log(blackBishops) / Math.log(2)) : 63);
-            blackBishops ^= (1L << pos);
+            int pos = Bitboards.lsb(blackBishops);
+            blackBishops = Bitboards.popLsb(blackBishops);
             score -= BISHOP_TABLE[inversePos(pos)];
         }
         return score;
@@ -410,13 +378,13 @@ public class GameLogic {
         }
 
         while (whitePawns != 0) {
-            int pos = (whitePawns > 0 ? (int)(Math.log(whitePawns) / Math.log(2)) : 63);
-            whitePawns ^= (1L << pos);
+            int pos = Bitboards.lsb(whitePawns);
+            whitePawns = Bitboards.popLsb(whitePawns);
             score += BISHOP_TABLE[pos];
         }
         while (blackPawns != 0) {
-            int pos = (blackPawns > 0 ? (int)(Math.log(blackPawns) / Math.log(2)) : 63);
-            blackPawns ^= (1L << pos);
+            int pos = Bitboards.lsb(blackPawns);
+            blackPawns = Bitboards.popLsb(blackPawns);
             score -= BISHOP_TABLE[inversePos(pos)];
         }
         return score;
@@ -424,8 +392,8 @@ public class GameLogic {
 
     public static int kingTableScore(long whiteKing, long blackKing, boolean endGame) {
         int score = 0;
-        int whitePos = (whiteKing > 0 ? (int)(Math.log(whiteKing) / Math.log(2)) : 63);
-        int blackPos = (blackKing > 0 ? (int)(Math.log(blackKing) / Math.log(2)) : 63);
+        int whitePos = Bitboards.lsb(whiteKing);
+        int blackPos = Bitboards.lsb(blackKing);
 
         score += (endGame ? KING_END_TABLE[whitePos] : KING_MIDDLE_TABLE[whitePos]);
         score -= (endGame ? KING_END_TABLE[inversePos(blackPos)] : KING_MIDDLE_TABLE[inversePos(blackPos)]);
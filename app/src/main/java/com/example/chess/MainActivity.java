@@ -17,6 +17,14 @@ import java.util.concurrent.ThreadLocalRandom;
 public class MainActivity extends AppCompatActivity {
 
     private Board currentBoard;
+    private EngineExecutor engine;
+    private boolean resumeSearch;
+
+    // the engine plays on a game clock, which only runs while it thinks on its own time
+    private static final long ENGINE_CLOCK = 2 * 60 * 1000;
+    private static final long ENGINE_INCREMENT = 1000;
+    private long engineClock = ENGINE_CLOCK;
+    private long clockStarted;
 
     private boolean ai = true;
     private ArrayList<Long> keys;
@@ -69,14 +77,61 @@ public class MainActivity extends AppCompatActivity {
 
         keys.add(currentBoard.zobristKey);
 
+        engine = new EngineExecutor();
+        // one core stays free for the ui, but a single core phone still searches on one thread; past four search
+        // threads, the main one and three lazy smp helpers, more gains little on a phone
+        engine.setThreads(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)));
+
 //        currentBoard.makeMove(currentBoard.createMove(57,42));
 //        currentBoard.makeMove(currentBoard.createMove(6,21));
 
         updateDisplay();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (resumeSearch) {
+            resumeSearch = false;
+            playEngineMove();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // no point burning the battery in the background, the search starts over when we come back
+        if (engine.isSearching()) {
+            resumeSearch = true;
+        }
+        engine.cancel();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        engine.shutdown();
+    }
+
+    public void newGame(View view) {
+        engine.newGame();
+        resumeSearch = false;
+        engineClock = ENGINE_CLOCK;
+        currentBoard = GameLogic.createStartBoard();
+        keys.clear();
+        moves.clear();
+        keys.add(currentBoard.zobristKey);
+        unHighlightAllTiles();
+        displayText("");
+        updateDisplay();
+    }
+
     public void onTileClick(View view) {
 
+        if (engine.isSearching()) {
+            return;
+        }
+
         unHighlightAllTiles();
 
         int tileNum = Integer.parseInt(view.getTag().toString());
@@ -205,7 +260,6 @@ public class MainActivity extends AppCompatActivity {
 //            int move = currentBoard.moveHistory.get(currentBoard.moveHistory.size() - 1);
 //            currentBoard.unMakeMove(move);
 //            currentBoard.moveHistory.remove(currentBoard.moveHistory.size() - 1);
-//            currentBoard.removeHistory();
 //        }
 //        updateDisplay();
 
@@ -218,48 +272,65 @@ public class MainActivity extends AppCompatActivity {
 //        System.out.println(out);
 
 
-        if (book.containsPos(currentBoard.zobristKey)) {
-            int aiMove = book.getMove(currentBoard.zobristKey);
-            currentBoard.makeMove(aiMove);
-            currentBoard.moveHistory.add(aiMove);
-        } else {
-            currentBoard.startSearch(3000);
-            int aiMove = currentBoard.getBestMove();
-            currentBoard.makeMove(aiMove);
-            currentBoard.moveHistory.add(aiMove);
+        if (!engine.isSearching() && currentBoard.hasAnyLegalMove()) {
+            playEngineMove();
         }
-        currentBoard.addHistory();
-        updateDisplay();
     }
 
     public void move(int move) {
         currentBoard.makeMove(move);
-        currentBoard.addHistory();
         currentBoard.moveHistory.add(move);
 
 //        moveList += ("0x" + Integer.toHexString(move) + ",");
 
-        if (currentBoard.generateAllLegalMoves(false).isEmpty()) {
-            displayText("Checkmate - " + (currentBoard.whiteToMove() ? "black" : "white") + " wins");
+        if (!currentBoard.hasAnyLegalMove()) {
+            engine.cancel();
+            displayGameOver();
         } else if (ai) {
-            if (book.containsPos(currentBoard.zobristKey)) {
-                int aiMove = book.getMove(currentBoard.zobristKey);
-                currentBoard.makeMove(aiMove);
-                currentBoard.moveHistory.add(aiMove);
+            if (engine.ponderHit(move, this::makeEngineMove)) {
+                // the time spent pondering was the user's, ours starts now
+                clockStarted = System.currentTimeMillis();
+                displayText("Thinking...");
             } else {
-                currentBoard.startSearch(3000);
-                int aiMove = currentBoard.getBestMove();
-                currentBoard.makeMove(aiMove);
-                currentBoard.moveHistory.add(aiMove);
-            }
-            currentBoard.addHistory();
-            if (currentBoard.generateAllLegalMoves(false).isEmpty()) {
-                displayText("Checkmate - " + (currentBoard.whiteToMove() ? "black" : "white") + " wins");
+                playEngineMove();
             }
         }
         currentBoard.clearTargets();
     }
 
+    private void playEngineMove() {
+        if (book.containsPos(currentBoard.zobristKey)) {
+            engine.cancel();
+            makeEngineMove(book.getMove(currentBoard.zobristKey), 0);
+        } else {
+            // the search runs on the engine thread, the move comes back through makeEngineMove
+            displayText("Thinking...");
+            clockStarted = System.currentTimeMillis();
+            engine.search(currentBoard, engineLimits(), this::makeEngineMove);
+        }
+    }
+
+    private SearchLimits engineLimits() {
+        return SearchLimits.clock(engineClock, ENGINE_INCREMENT, 0);
+    }
+
+    private void makeEngineMove(int aiMove, int ponderMove) {
+        if (clockStarted != 0) {
+            engineClock = Math.max(0, engineClock - (System.currentTimeMillis() - clockStarted)) + ENGINE_INCREMENT;
+            clockStarted = 0;
+        }
+        displayText("");
+        currentBoard.makeMove(aiMove);
+        currentBoard.moveHistory.add(aiMove);
+        if (!currentBoard.hasAnyLegalMove()) {
+            displayGameOver();
+        } else if (ponderMove != 0 && currentBoard.expandMove(Board.compactMove(ponderMove)) != 0) {
+            // keep thinking on the reply we expect while the user picks a move
+            engine.ponder(currentBoard, ponderMove, engineLimits());
+        }
+        updateDisplay();
+    }
+
     public void highlightTile(int tileNum) {
         findViewById(TILE_IDS[tileNum]).setBackgroundColor(getResources().getColor
                 (tileNum % 2 != GameLogic.getRow(tileNum) % 2 ? R.color.dark_square_highlight : R.color.light_square_highlight));
@@ -296,6 +367,14 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    public void displayGameOver() {
+        if (currentBoard.isInCheck()) {
+            displayText("Checkmate - " + (currentBoard.whiteToMove() ? "black" : "white") + " wins");
+        } else {
+            displayText("Stalemate - draw");
+        }
+    }
+
     public void displayText(String text) {
         ((TextView)findViewById(R.id.textView)).setText(text);
     }
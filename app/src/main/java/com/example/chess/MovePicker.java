@@ -0,0 +1,159 @@
+package com.example.chess;
+
+public class MovePicker {
+
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_GENERATE_CAPTURES = 1;
+    private static final int STAGE_CAPTURES = 2;
+    private static final int STAGE_KILLER_1 = 3;
+    private static final int STAGE_KILLER_2 = 4;
+    private static final int STAGE_GENERATE_QUIETS = 5;
+    private static final int STAGE_QUIETS = 6;
+    private static final int STAGE_BAD_CAPTURES = 7;
+    private static final int STAGE_DONE = 8;
+
+    private final Board board;
+    private final int[] moves;
+    private final int[] scores;
+
+    private int stage;
+    private int index;
+    private int count;
+    private int badCaptures;
+    private int captureCount;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private boolean includeQuiets;
+
+    public MovePicker(Board board, int[] moves, int[] scores) {
+        this.board = board;
+        this.moves = moves;
+        this.scores = scores;
+    }
+
+    public void init(int hashMove, int killer1, int killer2, boolean includeQuiets) {
+        this.stage = STAGE_HASH;
+        this.hashMove = hashMove;
+        this.killer1 = (killer1 == hashMove ? 0 : killer1);
+        this.killer2 = (killer2 == hashMove || killer2 == killer1 ? 0 : killer2);
+        this.includeQuiets = includeQuiets;
+        this.index = 0;
+        this.count = 0;
+    }
+
+    // returns the next legal move, best guesses first, or 0 once every move has been returned. Each stage falls
+    // through to the next one once it has nothing left to return
+    @SuppressWarnings("fallthrough")
+    public int next() {
+        switch (stage) {
+            case STAGE_HASH:
+                stage = STAGE_GENERATE_CAPTURES;
+                if (hashMove != 0) {
+                    int move = board.expandMove(hashMove);
+                    if (move != 0) {
+                        return move;
+                    }
+                    hashMove = 0;
+                }
+                // fall through
+            case STAGE_GENERATE_CAPTURES:
+                count = board.generateMoves(moves, 0, Board.GEN_CAPTURES);
+                for (int i = 0; i < count; i++) {
+                    scores[i] = board.captureScore(moves[i]);
+                }
+                index = 0;
+                stage = STAGE_CAPTURES;
+                // fall through
+            case STAGE_CAPTURES:
+                while (index < count) {
+                    int move = pickBest();
+                    if (scores[index - 1] < Board.EQUAL_CAPTURE) {
+                        // everything left loses material, it waits until after the quiet moves
+                        index--;
+                        break;
+                    }
+                    if (Board.compactMove(move) != hashMove) {
+                        return move;
+                    }
+                }
+                badCaptures = index;
+                captureCount = count;
+                if (!includeQuiets) {
+                    // quiescence never looks at losing captures
+                    stage = STAGE_DONE;
+                    return 0;
+                }
+                stage = STAGE_KILLER_1;
+                // fall through
+            case STAGE_KILLER_1:
+                stage = STAGE_KILLER_2;
+                if (killer1 != 0) {
+                    int move = board.expandMove(killer1);
+                    if (move != 0 && board.isQuiet(move)) {
+                        return move;
+                    }
+                    killer1 = 0;
+                }
+                // fall through
+            case STAGE_KILLER_2:
+                stage = STAGE_GENERATE_QUIETS;
+                if (killer2 != 0) {
+                    int move = board.expandMove(killer2);
+                    if (move != 0 && board.isQuiet(move)) {
+                        return move;
+                    }
+                    killer2 = 0;
+                }
+                // fall through
+            case STAGE_GENERATE_QUIETS:
+                // quiets go after the captures, so the buffer still holds everything generated at this ply
+                index = count;
+                count = board.generateMoves(moves, count, Board.GEN_QUIETS);
+                for (int i = index; i < count; i++) {
+                    scores[i] = board.moveScore(moves[i]);
+                }
+                stage = STAGE_QUIETS;
+                // fall through
+            case STAGE_QUIETS:
+                while (index < count) {
+                    int move = Board.compactMove(pickBest());
+                    if (move != hashMove && move != killer1 && move != killer2) {
+                        return moves[index - 1];
+                    }
+                }
+                index = badCaptures;
+                stage = STAGE_BAD_CAPTURES;
+                // fall through
+            case STAGE_BAD_CAPTURES:
+                while (index < captureCount) {
+                    int move = moves[index++];
+                    if (Board.compactMove(move) != hashMove) {
+                        return move;
+                    }
+                }
+                stage = STAGE_DONE;
+                // fall through
+            default:
+                return 0;
+        }
+    }
+
+    private int pickBest() {
+        // selection step: swap the best remaining move to the front instead of sorting everything
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        index++;
+        return move;
+    }
+}
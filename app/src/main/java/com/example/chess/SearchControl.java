@@ -0,0 +1,86 @@
+package com.example.chess;
+
+public class SearchControl {
+
+    // the clock is only read once every CHECK_INTERVAL nodes, must be a power of two
+    public static final int CHECK_INTERVAL = 2048;
+
+    private volatile boolean stopped;
+    private volatile boolean cancelled;
+    private volatile boolean pondering;
+    private long nodes;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline;
+    // a helper thread's control answers to the main thread's: its stop, cancel, pondering and deadline
+    private SearchControl main = this;
+
+    public void start(long deadline) {
+        start(deadline, Long.MAX_VALUE);
+    }
+
+    public void start(long deadline, long nodeLimit) {
+        this.main = this;
+        this.deadline = deadline;
+        this.nodeLimit = nodeLimit;
+        this.nodes = 0;
+        // a cancel that lands before the search starts must not be cleared here
+        this.stopped = cancelled;
+    }
+
+    public void startHelper(SearchControl main) {
+        start(main.deadline);
+        this.main = main;
+    }
+
+    // safe to call from any thread, the search returns within one node
+    public void stop() {
+        stopped = true;
+    }
+
+    // stops the current search and every later one started with this control
+    public void cancel() {
+        cancelled = true;
+        stopped = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || main.cancelled;
+    }
+
+    public boolean isStopped() {
+        return stopped || main.stopped;
+    }
+
+    public boolean countNode() {
+        if (isStopped()) {
+            return true;
+        }
+        // the node limit is checked on every node, so that a node limited search is reproducible
+        if (++nodes >= nodeLimit || ((nodes & (CHECK_INTERVAL - 1)) == 0 && isTimeUp())) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    // while pondering the deadline is ignored; clearing the flag on a ponder hit makes it count again, measured
+    // from when the ponder search started
+    public void setPondering(boolean pondering) {
+        this.pondering = pondering;
+    }
+
+    public boolean isPondering() {
+        return main.pondering;
+    }
+
+    public boolean isTimeUp() {
+        return !main.pondering && System.currentTimeMillis() >= deadline;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+}
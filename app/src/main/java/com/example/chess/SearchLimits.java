@@ -0,0 +1,143 @@
+package com.example.chess;
+
+// when a search stops; every limit left at 0 is ignored, and a search without any runs until it is stopped
+public class SearchLimits {
+
+    private int depth;
+    private long nodes;
+    private long moveTime;
+    private long time;
+    private long increment;
+    private int movesToGo;
+    private int mate;
+    private boolean infinite;
+
+    public static SearchLimits depth(int depth) {
+        SearchLimits limits = new SearchLimits();
+        limits.setDepth(depth);
+        return limits;
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        SearchLimits limits = new SearchLimits();
+        limits.setNodes(nodes);
+        return limits;
+    }
+
+    public static SearchLimits moveTime(long milliseconds) {
+        SearchLimits limits = new SearchLimits();
+        limits.setMoveTime(milliseconds);
+        return limits;
+    }
+
+    // a game clock for the side to move, movesToGo 0 for sudden death; TimeManager decides how much of it to use
+    public static SearchLimits clock(long time, long increment, int movesToGo) {
+        SearchLimits limits = new SearchLimits();
+        limits.setTime(time);
+        limits.setIncrement(increment);
+        limits.setMovesToGo(movesToGo);
+        return limits;
+    }
+
+    // stops once a mate in at most this many moves has been found
+    public static SearchLimits mate(int moves) {
+        SearchLimits limits = new SearchLimits();
+        limits.setMate(moves);
+        return limits;
+    }
+
+    public static SearchLimits infinite() {
+        SearchLimits limits = new SearchLimits();
+        limits.setInfinite(true);
+        return limits;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(long nodes) {
+        this.nodes = nodes;
+    }
+
+    public long getMoveTime() {
+        return moveTime;
+    }
+
+    public void setMoveTime(long moveTime) {
+        this.moveTime = moveTime;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    public long getIncrement() {
+        return increment;
+    }
+
+    public void setIncrement(long increment) {
+        this.increment = increment;
+    }
+
+    public int getMovesToGo() {
+        return movesToGo;
+    }
+
+    public void setMovesToGo(int movesToGo) {
+        this.movesToGo = movesToGo;
+    }
+
+    public int getMate() {
+        return mate;
+    }
+
+    public void setMate(int mate) {
+        this.mate = mate;
+    }
+
+    // infinite overrides every other limit
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    public void setInfinite(boolean infinite) {
+        this.infinite = infinite;
+    }
+
+    public int getMaxDepth() {
+        return (depth > 0 && !infinite ? Math.min(depth, SearchStack.MAX_PLY - 1) : SearchStack.MAX_PLY - 1);
+    }
+
+    public long getMaxNodes() {
+        return (nodes > 0 && !infinite ? nodes : Long.MAX_VALUE);
+    }
+
+    // a movetime wins over a clock when both are set
+    public boolean isTimed() {
+        return !infinite && (moveTime > 0 || time > 0);
+    }
+
+    // whether a mate score, MATE_SCORE minus the plies to mate, is short enough to end the search
+    public boolean isMateFound(int score) {
+        return mate > 0 && !infinite && score > Board.MATE_BOUND && Board.MATE_SCORE - score <= 2 * mate - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + " nodes " + nodes + " movetime " + moveTime + " time " + time + " increment " + increment +
+                " movestogo " + movesToGo + " mate " + mate + " infinite " + infinite;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.chess;
+
+import java.util.Arrays;
+
+// what a search has found so far, never changed once built so that other threads can read it at any time
+public class SearchResult {
+
+    public static final SearchResult NONE = new SearchResult(0, 0, 0, new int[0], 0L, 0L, false);
+
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final int[] principalVariation;
+    private final long nodes;
+    private final long time;
+    private final boolean partial;
+
+    public SearchResult(int bestMove, int score, int depth, int[] principalVariation, long nodes, long time, boolean partial) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.principalVariation = principalVariation;
+        this.nodes = nodes;
+        this.time = time;
+        this.partial = partial;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(principalVariation, principalVariation.length);
+    }
+
+    // the expected reply, or 0 when the principal variation stops after the best move
+    public int getPonderMove() {
+        return (principalVariation.length > 1 ? principalVariation[1] : 0);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    // true when depth was not finished, but bestMove was fully searched to it and beat the previous iteration's move;
+    // the score is then only a lower bound
+    public boolean isPartial() {
+        return partial;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + (partial ? "+" : "") + " score " + score + " nodes " + nodes + " time " + time + " pv " +
+                GameLogic.getMoveList(principalVariation);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.chess;
+
+import java.util.Arrays;
+
+public class SearchStack {
+
+    public static final int MAX_PLY = 128;
+    public static final int MAX_MOVES = 256;
+
+    // history scores approach this bound but never reach it
+    public static final int HISTORY_MAX = 1 << 14;
+
+    // one move buffer and one score buffer per ply, allocated once and reused by every search
+    public final int[][] moves = new int[MAX_PLY][MAX_MOVES];
+    public final int[][] scores = new int[MAX_PLY][MAX_MOVES];
+    public final MovePicker[] pickers = new MovePicker[MAX_PLY];
+
+    // the two most recent compact quiet moves that caused a beta cutoff at each ply, newest first
+    public final int[][] killers = new int[MAX_PLY][2];
+
+    // butterfly history by [side to move][start][end], raised for quiet moves that cause a beta cutoff and lowered
+    // for the quiet moves searched before them; can outlive the stack, see Board.setHistory
+    public int[][][] history;
+    // compact quiet moves searched so far at each ply, the ones lowered once a later quiet move cuts off
+    public final int[][] quietsSearched = new int[MAX_PLY][MAX_MOVES];
+
+    // triangular principal variation table: pv[ply] holds the best line found from ply on, in pv[ply][ply] up to
+    // pvLength[ply]
+    public final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    public final int[] pvLength = new int[MAX_PLY];
+
+    // static evaluation of the node at each ply, NO_EVAL while in check
+    public static final int NO_EVAL = Integer.MIN_VALUE;
+    public final int[] staticEvals = new int[MAX_PLY];
+
+    // set while the move made at a ply is a null move
+    public final boolean[] nullMoves = new boolean[MAX_PLY];
+
+    public SearchStack(Board board, int[][][] history) {
+        this.history = history;
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(board, moves[ply], scores[ply]);
+        }
+    }
+
+    public void clearKillers() {
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            killers[ply][0] = 0;
+            killers[ply][1] = 0;
+        }
+    }
+
+    public static int[][][] newHistory() {
+        return new int[2][64][64];
+    }
+
+    public static void clearHistory(int[][][] history) {
+        for (int[][] side : history) {
+            for (int[] from : side) {
+                Arrays.fill(from, 0);
+            }
+        }
+    }
+
+    // halves every history score, so what the last search learned still counts but fades out over the game
+    public void ageHistory() {
+        for (int[][] side : history) {
+            for (int[] from : side) {
+                for (int to = 0; to < 64; to++) {
+                    from[to] >>= 1;
+                }
+            }
+        }
+    }
+
+    // move is the new best at ply, followed by the line the child node just found
+    public void updatePv(int plyFromRoot, int move) {
+        int[] line = pv[plyFromRoot];
+        int length = pvLength[plyFromRoot + 1];
+        line[plyFromRoot] = move;
+        System.arraycopy(pv[plyFromRoot + 1], plyFromRoot + 1, line, plyFromRoot + 1, length - plyFromRoot - 1);
+        pvLength[plyFromRoot] = length;
+    }
+
+    public void storeKiller(int plyFromRoot, int compactMove) {
+        int[] slots = killers[plyFromRoot];
+        if (slots[0] != compactMove) {
+            slots[1] = slots[0];
+            slots[0] = compactMove;
+        }
+    }
+
+    public void updateHistory(boolean whiteToMove, int compactMove, int depth, int[] quiets, int quietCount) {
+        int[][] side = history[whiteToMove ? 0 : 1];
+        int bonus = Math.min(depth * depth, 400);
+        addHistory(side, compactMove, bonus);
+        for (int i = 0; i < quietCount; i++) {
+            addHistory(side, quiets[i], -bonus);
+        }
+    }
+
+    private static void addHistory(int[][] side, int compactMove, int bonus) {
+        // the change shrinks as the score gets close to +-HISTORY_MAX, which keeps it bounded without rescaling the
+        // table
+        int[] entry = side[(compactMove >> 6) & 0b111111];
+        int to = compactMove & 0b111111;
+        entry[to] += bonus - entry[to] * Math.abs(bonus) / HISTORY_MAX;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.chess;
+
+public class SearchStats {
+
+    // quiescence nodes, and how many of them or of their captures delta pruning skipped; table cutoffs in quiescence
+    public long quiescenceNodes;
+    public long deltaPrunes;
+    public long quiescenceTableCutoffs;
+
+    // principal variation search: null window searches, and the ones that failed high and had to be searched again
+    public long nullWindowSearches;
+    public long pvsResearches;
+
+    // root searches with an aspiration window, and how often the score fell outside it
+    public long aspirationSearches;
+    public long aspirationFailLows;
+    public long aspirationFailHighs;
+
+    // null move searches, their fail highs, and how many of the deep ones the verification search overturned
+    public long nullMoveSearches;
+    public long nullMoveCutoffs;
+    public long nullMoveVerifications;
+    public long nullMoveVerificationFails;
+
+    // late move reductions, and the reduced searches that failed high and went back to full depth
+    public long lateMoveReductions;
+    public long lmrResearches;
+
+    // frontier nodes cut by razoring, and quiet moves skipped by futility and late move pruning
+    public long razorPrunes;
+    public long futilityPrunes;
+    public long lateMovePrunes;
+
+    public void reset() {
+        quiescenceNodes = 0;
+        deltaPrunes = 0;
+        quiescenceTableCutoffs = 0;
+        nullWindowSearches = 0;
+        pvsResearches = 0;
+        aspirationSearches = 0;
+        aspirationFailLows = 0;
+        aspirationFailHighs = 0;
+        nullMoveSearches = 0;
+        nullMoveCutoffs = 0;
+        nullMoveVerifications = 0;
+        nullMoveVerificationFails = 0;
+        lateMoveReductions = 0;
+        lmrResearches = 0;
+        razorPrunes = 0;
+        futilityPrunes = 0;
+        lateMovePrunes = 0;
+    }
+
+    public void add(SearchStats other) {
+        quiescenceNodes += other.quiescenceNodes;
+        deltaPrunes += other.deltaPrunes;
+        quiescenceTableCutoffs += other.quiescenceTableCutoffs;
+        nullWindowSearches += other.nullWindowSearches;
+        pvsResearches += other.pvsResearches;
+        aspirationSearches += other.aspirationSearches;
+        aspirationFailLows += other.aspirationFailLows;
+        aspirationFailHighs += other.aspirationFailHighs;
+        nullMoveSearches += other.nullMoveSearches;
+        nullMoveCutoffs += other.nullMoveCutoffs;
+        nullMoveVerifications += other.nullMoveVerifications;
+        nullMoveVerificationFails += other.nullMoveVerificationFails;
+        lateMoveReductions += other.lateMoveReductions;
+        lmrResearches += other.lmrResearches;
+        razorPrunes += other.razorPrunes;
+        futilityPrunes += other.futilityPrunes;
+        lateMovePrunes += other.lateMovePrunes;
+    }
+
+    private static String percent(long part, long total) {
+        return (total == 0 ? "0" : String.valueOf(part * 100 / total)) + "%";
+    }
+
+    @Override
+    public String toString() {
+        return "quiescence nodes " + quiescenceNodes + " delta prunes " + deltaPrunes + " table cutoffs " +
+                quiescenceTableCutoffs + " pvs re-searches " + pvsResearches + "/" + nullWindowSearches + " (" + percent(pvsResearches, nullWindowSearches) +
+                ") aspiration fail low " + aspirationFailLows + " fail high " + aspirationFailHighs + " of " + aspirationSearches +
+                " null move cutoffs " + nullMoveCutoffs + "/" + nullMoveSearches + " verified " + nullMoveVerifications +
+                " overturned " + nullMoveVerificationFails + " lmr re-searches " + lmrResearches + "/" + lateMoveReductions +
+                " (" + percent(lmrResearches, lateMoveReductions) + ") razor " + razorPrunes + " futility " + futilityPrunes +
+                " late move " + lateMovePrunes;
+    }
+}
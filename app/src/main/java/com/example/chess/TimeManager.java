@@ -0,0 +1,100 @@
+package com.example.chess;
+
+// splits the time of a timed search into a hard limit, which the search checks every few thousand nodes, and a soft
+// limit, which is only checked between iterations and moves with how settled the best move is
+public class TimeManager {
+
+    // kept back for the time between the search stopping and the move showing up on the board
+    public static final int MOVE_OVERHEAD = 30;
+    // how many moves a sudden death clock has to last
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private final long startTime;
+    private final boolean clock;
+    private final long softLimit;
+    private final long hardLimit;
+
+    private int lastBestMove;
+    private int stableIterations;
+    private double bestMoveChanges;
+    private long lastIterationEnd;
+    private long lastIterationTime;
+    private long previousIterationTime;
+
+    public TimeManager(SearchLimits limits, long startTime) {
+        this.startTime = startTime;
+        this.lastIterationEnd = startTime;
+        this.clock = limits.isTimed() && limits.getMoveTime() <= 0;
+        if (!limits.isTimed()) {
+            softLimit = Long.MAX_VALUE;
+            hardLimit = Long.MAX_VALUE;
+        } else if (!clock) {
+            softLimit = limits.getMoveTime();
+            hardLimit = limits.getMoveTime();
+        } else {
+            long available = Math.max(1, limits.getTime() - MOVE_OVERHEAD);
+            int movesToGo = (limits.getMovesToGo() > 0 ? Math.min(limits.getMovesToGo(), DEFAULT_MOVES_TO_GO) :
+                    DEFAULT_MOVES_TO_GO);
+            // never more than 4/5 of the clock on one move, even with one move to go
+            long maximum = Math.max(1, available * 4 / 5);
+            softLimit = Math.max(1, Math.min(available / movesToGo + limits.getIncrement() * 3 / 4, maximum));
+            hardLimit = Math.min(softLimit * 4, maximum);
+        }
+    }
+
+    public long getDeadline() {
+        return (hardLimit == Long.MAX_VALUE ? Long.MAX_VALUE : startTime + hardLimit);
+    }
+
+    // called after every completed iteration, returns true when the next one is not worth starting
+    public boolean iterationDone(int bestMove, int score, long now) {
+        previousIterationTime = lastIterationTime;
+        lastIterationTime = now - lastIterationEnd;
+        lastIterationEnd = now;
+
+        boolean changed = (lastBestMove != 0 && bestMove != lastBestMove);
+        stableIterations = (changed ? 0 : stableIterations + 1);
+        // decays by half every iteration, so only the recent changes count
+        bestMoveChanges = bestMoveChanges / 2 + (changed ? 1 : 0);
+        lastBestMove = bestMove;
+
+        // a fixed move time is spent in full: an iteration cut off by the deadline can still promote a better move
+        if (!clock) {
+            return false;
+        }
+        // a mate that held for another two iterations will not go away
+        if (Math.abs(score) > Board.MATE_BOUND && stableIterations >= 2) {
+            return true;
+        }
+        long elapsed = now - startTime;
+        if (elapsed >= getSoftLimit()) {
+            return true;
+        }
+        // an iteration that can not finish before the hard limit is cut off, better to save the clock
+        return elapsed + predictNextIteration() > hardLimit;
+    }
+
+    public long getSoftLimit() {
+        if (!clock) {
+            return softLimit;
+        }
+        // from 0.6 times the base once the best move has held for six iterations to three times while it keeps
+        // changing
+        double stability = 1.2 - 0.1 * Math.min(stableIterations, 6);
+        double instability = 1 + bestMoveChanges;
+        return Math.min((long) (softLimit * stability * instability), hardLimit);
+    }
+
+    public long getHardLimit() {
+        return hardLimit;
+    }
+
+    private long predictNextIteration() {
+        // the ratio of the last two iterations, kept in a sane range since short ones are mostly timer noise
+        double branchingFactor = 2;
+        if (previousIterationTime > 0) {
+            branchingFactor = Math.max(1.5, Math.min(6, (double) lastIterationTime / previousIterationTime));
+        }
+        return (long) (lastIterationTime * branchingFactor);
+    }
+}
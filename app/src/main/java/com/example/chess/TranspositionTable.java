@@ -0,0 +1,141 @@
+package com.example.chess;
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    // bound types, never 0 so that an empty slot reads back as a miss
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+    public static final int EXACT = 3;
+
+    // entry data layout: bits 0-14 compact move, 16-23 depth, 24-25 bound, 26-31 age, 32-63 score
+    private long[] keys;
+    private long[] data;
+    private int bucketMask;
+    private int age;
+
+    // shared by all search threads without locking, so the counters are approximate when several threads run
+    private long probes;
+    private long hits;
+    private long stores;
+    private long collisions;
+
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    public void resize(int megabytes) {
+        // two longs per entry, two entries per bucket; round down to a power of two
+        long entries = Math.max(2L, ((long) Math.max(1, megabytes) << 20) / 16);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 30));
+        keys = new long[2 * buckets];
+        data = new long[2 * buckets];
+        bucketMask = buckets - 1;
+        clear();
+    }
+
+    public int getSizeMb() {
+        return (int) (((long) keys.length * 16) >> 20);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        age = 0;
+        resetStats();
+    }
+
+    public void newSearch() {
+        age = (age + 1) & 0b111111;
+    }
+
+    public long probe(long key) {
+        // keys hold key ^ data, so an entry torn by another thread's store fails the check instead of
+        // returning another position's data
+        probes++;
+        int index = ((int) key & bucketMask) << 1;
+        long entry = data[index];
+        if ((keys[index] ^ entry) == key && entry != 0) {
+            hits++;
+            return entry;
+        }
+        entry = data[index + 1];
+        if ((keys[index + 1] ^ entry) == key && entry != 0) {
+            hits++;
+            return entry;
+        }
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        stores++;
+        int index = ((int) key & bucketMask) << 1;
+        long old = data[index];
+        long oldKey = keys[index] ^ old;
+
+        // slot 0 keeps the deepest entry of the current search, slot 1 is always replaced
+        if (oldKey != key && old != 0 && age(old) == age && depth(old) > depth) {
+            index++;
+            old = data[index];
+            oldKey = keys[index] ^ old;
+        }
+        if (old != 0) {
+            if (oldKey != key) {
+                collisions++;
+            } else if (move == 0) {
+                move = move(old);
+            }
+        }
+
+        long entry = (move & 0x7fffL) | ((long) (Math.min(depth, 255) & 0xff) << 16) | ((long) bound << 24) |
+                ((long) age << 26) | ((long) score << 32);
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0x7fff);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >> 16) & 0xff);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >> 24) & 0b11);
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int age(long entry) {
+        return (int) ((entry >> 26) & 0b111111);
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getCollisions() {
+        return collisions;
+    }
+
+    public void resetStats() {
+        probes = 0;
+        hits = 0;
+        stores = 0;
+        collisions = 0;
+    }
+}
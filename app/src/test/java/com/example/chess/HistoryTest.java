@@ -0,0 +1,73 @@
+package com.example.chess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistoryTest {
+
+    private static final String ITALIAN = "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4";
+
+    private static int[][][] copyOf(int[][][] history) {
+        int[][][] copy = SearchStack.newHistory();
+        for (int side = 0; side < 2; side++) {
+            for (int from = 0; from < 64; from++) {
+                System.arraycopy(history[side][from], 0, copy[side][from], 0, 64);
+            }
+        }
+        return copy;
+    }
+
+    @Test
+    public void nextSearchStartsFromTheAgedHistory() {
+        // two copies searching one after the other, the way the engine thread searches a game
+        int[][][] history = SearchStack.newHistory();
+        Board game = GameLogic.createBoardFromFEN(ITALIAN);
+        Board first = game.copy();
+        first.setHistory(history);
+        first.startSearch(SearchLimits.depth(6));
+        int[][][] learned = copyOf(history);
+
+        Board second = game.copy();
+        second.makeMove(first.getBestMove());
+        second.setHistory(history);
+        // stops on its first node, before any cutoff can change the table
+        second.startSearch(SearchLimits.nodes(1));
+
+        int nonZero = 0;
+        for (int side = 0; side < 2; side++) {
+            for (int from = 0; from < 64; from++) {
+                for (int to = 0; to < 64; to++) {
+                    assertEquals(learned[side][from][to] >> 1, history[side][from][to]);
+                    if (history[side][from][to] != 0) {
+                        nonZero++;
+                    }
+                }
+            }
+        }
+        assertTrue(nonZero > 0);
+    }
+
+    @Test
+    public void copiesDoNotShareTheHistory() {
+        Board board = GameLogic.createBoardFromFEN(ITALIAN);
+        int[][][] history = SearchStack.newHistory();
+        board.setHistory(history);
+        board.startSearch(SearchLimits.depth(6));
+        int[][][] learned = copyOf(history);
+        Board copy = board.copy();
+        copy.startSearch(SearchLimits.depth(6));
+        // the copy learned on a table of its own and left this one alone
+        assertArrayEquals(learned, history);
+    }
+
+    @Test
+    public void clearHistory() {
+        int[][][] history = SearchStack.newHistory();
+        Board board = GameLogic.createBoardFromFEN(ITALIAN);
+        board.setHistory(history);
+        board.startSearch(SearchLimits.depth(5));
+        SearchStack.clearHistory(history);
+        assertArrayEquals(SearchStack.newHistory(), history);
+    }
+}
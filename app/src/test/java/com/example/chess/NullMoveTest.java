@@ -0,0 +1,90 @@
+package com.example.chess;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class NullMoveTest {
+
+    private static final String[] POSITIONS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            // en passant possible, and a halfmove counter to keep
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 37 3",
+            // a pinned piece on each side, only the side to move's pins are up to date
+            "4k3/3br3/8/1B6/4B3/8/8/4K3 w - - 12 40",
+            // the highest en passant column and the highest halfmove counter the search sees
+            "8/8/8/6Pp/8/8/k7/7K w - h6 99 80",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR b KQkq - 3 3"
+    };
+
+    @Test
+    public void nullMoveMatchesThePositionWithTheOtherSideToMove() {
+        for (String fen : POSITIONS) {
+            Board board = GameLogic.createBoardFromFEN(fen);
+            board.makeNullMove();
+            Board expected = GameLogic.createBoardFromFEN(passTheTurn(fen));
+            assertState(fen, expected, board);
+            assertEquals(fen, 0, board.getHalfMoveCounter());
+            assertEquals(fen, 8, board.getEnPassantColumn());
+        }
+    }
+
+    @Test
+    public void unMakeNullMoveRestoresEverything() {
+        for (String fen : POSITIONS) {
+            Board board = GameLogic.createBoardFromFEN(fen);
+            Board expected = GameLogic.createBoardFromFEN(fen);
+            board.makeNullMove();
+            board.unMakeNullMove();
+            assertState(fen, expected, board);
+        }
+    }
+
+    @Test
+    public void movesInsideANullMoveAreUndone() {
+        for (String fen : POSITIONS) {
+            Board board = GameLogic.createBoardFromFEN(fen);
+            Board expected = GameLogic.createBoardFromFEN(fen);
+            board.makeNullMove();
+            int[] moves = new int[256];
+            int count = board.generateMoves(moves, Board.GEN_ALL);
+            for (int i = 0; i < count; i++) {
+                board.makeMove(moves[i]);
+                board.unMakeMove(moves[i]);
+            }
+            board.unMakeNullMove();
+            assertState(fen, expected, board);
+        }
+    }
+
+    private static String passTheTurn(String fen) {
+        String[] fields = fen.split(" ");
+        fields[1] = (fields[1].equals("w") ? "b" : "w");
+        fields[3] = "-";
+        fields[4] = "0";
+        return String.join(" ", fields);
+    }
+
+    private static void assertState(String fen, Board expected, Board actual) {
+        assertEquals(fen, expected.zobristKey, actual.zobristKey);
+        assertEquals(fen, expected.isWhiteToMove(), actual.isWhiteToMove());
+        assertEquals(fen, expected.getEnPassantColumn(), actual.getEnPassantColumn());
+        assertEquals(fen, expected.getHalfMoveCounter(), actual.getHalfMoveCounter());
+        assertEquals(fen, expected.isInCheck(), actual.isInCheck());
+        // pins and check evasions both show up in the legal moves
+        assertArrayEquals(fen, legalMoves(expected), legalMoves(actual));
+    }
+
+    private static int[] legalMoves(Board board) {
+        int[] moves = new int[256];
+        int count = board.generateMoves(moves, Board.GEN_ALL);
+        int[] compact = new int[count];
+        for (int i = 0; i < count; i++) {
+            compact[i] = Board.compactMove(moves[i]);
+        }
+        Arrays.sort(compact);
+        return compact;
+    }
+}
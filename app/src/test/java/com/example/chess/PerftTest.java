@@ -0,0 +1,112 @@
+package com.example.chess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PerftTest {
+
+    // the standard perft positions, at depths that keep the whole class to a few seconds
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    private final int[][] moves = new int[16][256];
+
+    private long perft(Board board, int depth) {
+        int[] buffer = moves[depth];
+        int count = board.generateMoves(buffer, Board.GEN_ALL);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            nodes += perft(board, depth - 1);
+            board.unMakeMove(buffer[i]);
+        }
+        return nodes;
+    }
+
+    private long perft(String fen, int depth) {
+        return perft(GameLogic.createBoardFromFEN(fen), depth);
+    }
+
+    @Test
+    public void startPosition() {
+        assertEquals(20, perft(START, 1));
+        assertEquals(400, perft(START, 2));
+        assertEquals(8902, perft(START, 3));
+        assertEquals(197281, perft(START, 4));
+    }
+
+    @Test
+    public void kiwipete() {
+        assertEquals(48, perft(KIWIPETE, 1));
+        assertEquals(2039, perft(KIWIPETE, 2));
+        assertEquals(97862, perft(KIWIPETE, 3));
+    }
+
+    @Test
+    public void position3() {
+        assertEquals(14, perft(POSITION_3, 1));
+        assertEquals(2812, perft(POSITION_3, 3));
+        assertEquals(43238, perft(POSITION_3, 4));
+    }
+
+    @Test
+    public void position4() {
+        assertEquals(6, perft(POSITION_4, 1));
+        assertEquals(264, perft(POSITION_4, 2));
+        assertEquals(9467, perft(POSITION_4, 3));
+    }
+
+    @Test
+    public void position5() {
+        assertEquals(44, perft(POSITION_5, 1));
+        assertEquals(1486, perft(POSITION_5, 2));
+        assertEquals(62379, perft(POSITION_5, 3));
+    }
+
+    @Test
+    public void position6() {
+        assertEquals(46, perft(POSITION_6, 1));
+        assertEquals(2079, perft(POSITION_6, 2));
+        assertEquals(89890, perft(POSITION_6, 3));
+    }
+
+    @Test
+    public void enPassantDiscoveredCheck() {
+        // taking en passant would open the rank between the king and the rook
+        assertEquals(6, perft("8/8/8/K2pP2r/8/8/8/7k w - d6 0 2", 1));
+        assertEquals(1134888, perft("3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", 6));
+    }
+
+    @Test
+    public void zobristKeyUpdatedByMakeAndUnMakeMove() {
+        for (String fen : new String[]{START, KIWIPETE, POSITION_3, POSITION_4, POSITION_5, POSITION_6}) {
+            Board board = GameLogic.createBoardFromFEN(fen);
+            checkKeys(board, 3);
+        }
+    }
+
+    private void checkKeys(Board board, int depth) {
+        int[] buffer = moves[depth];
+        int count = board.generateMoves(buffer, Board.GEN_ALL);
+        long key = board.zobristKey;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(buffer[i]);
+            assertNotEquals(key, board.zobristKey);
+            if (depth > 1) {
+                // copy builds its key from scratch, so this checks the incremental update; too slow for the leaves
+                assertEquals(board.copy().zobristKey, board.zobristKey);
+                checkKeys(board, depth - 1);
+            }
+            board.unMakeMove(buffer[i]);
+            assertEquals(key, board.zobristKey);
+        }
+    }
+}
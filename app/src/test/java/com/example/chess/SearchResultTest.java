@@ -0,0 +1,101 @@
+package com.example.chess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchResultTest {
+
+    // white mates with Ra8
+    private static final String BACK_RANK_MATE = "6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1";
+
+    @Test
+    public void findsTheMate() {
+        Board board = GameLogic.createBoardFromFEN(BACK_RANK_MATE);
+        board.startSearch(SearchLimits.depth(3));
+        assertEquals("a1a8", GameLogic.getSquares(board.getBestMove()));
+        assertEquals(Board.MATE_SCORE - 1, board.getSearchResult().getScore());
+        assertEquals(1, board.getPrincipalVariation().length);
+    }
+
+    @Test
+    public void noBestMoveWhenMated() {
+        // the same board searches again once it is mated, the line of the last search must not leak into this one
+        Board board = GameLogic.createBoardFromFEN(BACK_RANK_MATE);
+        board.startSearch(SearchLimits.depth(3));
+        board.makeMove(board.getBestMove());
+        board.startSearch(SearchLimits.depth(3));
+        SearchResult result = board.getSearchResult();
+        assertEquals(0, result.getBestMove());
+        assertEquals(0, result.getPrincipalVariation().length);
+        assertEquals(-Board.MATE_SCORE, result.getScore());
+        assertEquals(0, board.getSearchResults()[0].getBestMove());
+    }
+
+    @Test
+    public void noBestMoveWhenStalemated() {
+        Board board = GameLogic.createBoardFromFEN("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        board.startSearch(SearchLimits.depth(3));
+        assertEquals(0, board.getBestMove());
+        assertEquals(0, board.getSearchResult().getScore());
+    }
+
+    @Test
+    public void multiPvLinesAreTheirOwn() {
+        Board board = GameLogic.createBoardFromFEN("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        board.setMultiPv(4);
+        board.startSearch(SearchLimits.depth(6));
+        SearchResult[] lines = board.getSearchResults();
+        assertEquals(4, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertNotEquals(0, lines[i].getBestMove());
+            assertEquals(lines[i].getBestMove(), lines[i].getPrincipalVariation()[0]);
+            if (i > 0) {
+                assertTrue(lines[i].getScore() <= lines[i - 1].getScore());
+            }
+            for (int j = 0; j < i; j++) {
+                assertNotEquals(lines[j].getBestMove(), lines[i].getBestMove());
+            }
+        }
+        assertEquals(lines[0].getBestMove(), board.getBestMove());
+    }
+
+    @Test
+    public void noMoreLinesThanMoves() {
+        // the king has three squares to go to
+        Board board = GameLogic.createBoardFromFEN("7k/8/8/8/8/8/8/K7 b - - 0 1");
+        board.setMultiPv(5);
+        board.startSearch(SearchLimits.depth(4));
+        SearchResult[] lines = board.getSearchResults();
+        assertEquals(3, lines.length);
+        assertNotEquals(lines[0].getBestMove(), lines[1].getBestMove());
+        assertNotEquals(lines[0].getBestMove(), lines[2].getBestMove());
+        assertNotEquals(lines[1].getBestMove(), lines[2].getBestMove());
+    }
+
+    @Test
+    public void stoppedSearchGivesOneAnswer() {
+        // node limits that stop the search part way into an iteration, some of them after a new best move was found
+        int partial = 0;
+        for (int multiPv = 1; multiPv <= 3; multiPv += 2) {
+            for (long nodes = 1000; nodes <= 60000; nodes += 1000) {
+                Board board = GameLogic.createBoardFromFEN("r2q1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1Q1PPP/R3KB1R w KQ - 0 9");
+                board.setMultiPv(multiPv);
+                board.startSearch(SearchLimits.nodes(nodes));
+                SearchResult[] lines = board.getSearchResults();
+                assertSame(board.getSearchResult(), lines[0]);
+                assertEquals(lines[0].getBestMove(), board.getBestMove());
+                for (int i = 1; i < lines.length; i++) {
+                    for (int j = 0; j < i; j++) {
+                        assertNotEquals(lines[j].getBestMove(), lines[i].getBestMove());
+                    }
+                }
+                if (lines[0].isPartial()) {
+                    partial++;
+                    assertTrue(lines.length == 1 || lines[0].getDepth() > lines[1].getDepth());
+                }
+            }
+        }
+        assertTrue(partial > 0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.chess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StaticExchangeTest {
+
+    // the move in coordinate notation, promotions with the piece letter
+    private static int move(Board board, String squares) {
+        int[] moves = new int[256];
+        int count = board.generateMoves(moves, Board.GEN_ALL);
+        for (int i = 0; i < count; i++) {
+            if (GameLogic.getSquares(moves[i]).equals(squares)) {
+                return moves[i];
+            }
+        }
+        throw new AssertionError(squares + " is not legal");
+    }
+
+    // seeGE answers yes up to the exchange value and no above it
+    private static void assertExchange(String fen, String squares, int value) {
+        Board board = GameLogic.createBoardFromFEN(fen);
+        int move = move(board, squares);
+        assertTrue(squares + " >= " + value, board.seeGE(move, value));
+        assertFalse(squares + " >= " + (value + 1), board.seeGE(move, value + 1));
+    }
+
+    @Test
+    public void undefendedPawn() {
+        assertExchange("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5", 100);
+    }
+
+    @Test
+    public void defendedPieceForAnEqualOne() {
+        // bishop takes knight, pawn takes bishop
+        assertExchange("4k3/8/2p5/3n4/8/8/6B1/4K3 w - - 0 1", "g2d5", 0);
+    }
+
+    @Test
+    public void rookBehindRookJoinsIn() {
+        // without the rook on e1 the pawn would cost the rook on e2
+        assertExchange("4k3/4r3/8/4p3/8/8/4R3/4R1K1 w - - 0 1", "e2e5", 100);
+    }
+
+    @Test
+    public void rookBehindAnotherAttackerJoinsIn() {
+        // NxP NxN RxN RxR RxR: the second white rook only sees e5 once the first has gone, without it white would
+        // be left a knight for a pawn down
+        assertExchange("4r1k1/3n4/8/4p3/8/3N4/4R3/4R1K1 w - - 0 1", "d3e5", 100);
+    }
+
+    @Test
+    public void longExchangeWithXrays() {
+        // NxP NxN RxN BxR QxB QxQ: the rook behind nothing, queens behind rook and bishop; white does best to stop
+        // after losing the knight for a pawn
+        assertExchange("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5", -200);
+    }
+
+    @Test
+    public void quietMoveOntoAnAttackedSquare() {
+        assertExchange("4k3/8/8/2p5/8/5N2/8/4K3 w - - 0 1", "f3d4", -300);
+    }
+
+    @Test
+    public void quietMoveOntoASafeSquare() {
+        assertExchange("4k3/8/8/2p5/8/5N2/8/4K3 w - - 0 1", "f3e5", 0);
+    }
+
+    @Test
+    public void enPassant() {
+        assertExchange("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", 100);
+        // the pawn on c7 takes back on d6
+        assertExchange("4k3/2p5/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6", 0);
+    }
+
+    @Test
+    public void enPassantOpensTheFileBehind() {
+        // the pawn taken en passant leaves d5 empty, so the rook on d3 sees up to d6 and takes back
+        assertExchange("4k3/8/8/3pP3/8/3r4/8/4K3 w - d6 0 1", "e5d6", 0);
+    }
+
+    @Test
+    public void promotionsCountAsEven() {
+        Board board = GameLogic.createBoardFromFEN("4k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        int move = move(board, "a7a8q");
+        assertTrue(board.seeGE(move, 0));
+        assertTrue(board.seeGE(move, -500));
+        assertFalse(board.seeGE(move, 1));
+    }
+}
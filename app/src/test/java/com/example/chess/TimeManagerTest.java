@@ -0,0 +1,152 @@
+package com.example.chess;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimeManagerTest {
+
+    private static final long START = 1000000;
+    private static final int MOVE = 0x1234;
+    private static final int OTHER_MOVE = 0x4321;
+
+    private static TimeManager clock(long time, long increment, int movesToGo) {
+        return new TimeManager(SearchLimits.clock(time, increment, movesToGo), START);
+    }
+
+    // before the first iteration nothing is settled yet, which gives a fifth more than the base
+    private static long unsettled(long base) {
+        return (long) (base * 1.2);
+    }
+
+    @Test
+    public void suddenDeathSplitsTheClock() {
+        TimeManager time = clock(60000, 0, 0);
+        long available = 60000 - TimeManager.MOVE_OVERHEAD;
+        long base = available / TimeManager.DEFAULT_MOVES_TO_GO;
+        assertEquals(unsettled(base), time.getSoftLimit());
+        assertEquals(base * 4, time.getHardLimit());
+        assertEquals(START + time.getHardLimit(), time.getDeadline());
+    }
+
+    @Test
+    public void lowClockStaysInsideTheClock() {
+        TimeManager time = clock(100, 0, 0);
+        assertTrue(time.getSoftLimit() > 0);
+        assertTrue(time.getHardLimit() >= time.getSoftLimit());
+        assertTrue(time.getHardLimit() < 100 - TimeManager.MOVE_OVERHEAD);
+
+        // less left than the overhead still gets a deadline in the future
+        time = clock(10, 0, 0);
+        assertTrue(time.getSoftLimit() > 0);
+        assertTrue(time.getDeadline() > START);
+        assertTrue(time.getHardLimit() < 10);
+    }
+
+    @Test
+    public void incrementIsMostlySpent() {
+        TimeManager time = clock(60000, 1000, 0);
+        long available = 60000 - TimeManager.MOVE_OVERHEAD;
+        long base = available / TimeManager.DEFAULT_MOVES_TO_GO + 750;
+        assertEquals(unsettled(base), time.getSoftLimit());
+        assertEquals(base * 4, time.getHardLimit());
+    }
+
+    @Test
+    public void incrementOnlyNeverTakesTheWholeClock() {
+        // a big increment on an almost empty clock
+        TimeManager time = clock(1000, 2000, 0);
+        long maximum = (1000 - TimeManager.MOVE_OVERHEAD) * 4 / 5;
+        assertEquals(maximum, time.getSoftLimit());
+        assertEquals(maximum, time.getHardLimit());
+    }
+
+    @Test
+    public void movesToGo() {
+        long available = 10000 - TimeManager.MOVE_OVERHEAD;
+        assertEquals(unsettled(available / 5), clock(10000, 0, 5).getSoftLimit());
+        assertEquals(available / 5 * 4, clock(10000, 0, 5).getHardLimit());
+
+        // the last move before the time control still leaves something on the clock
+        TimeManager time = clock(10000, 0, 1);
+        assertEquals(available * 4 / 5, time.getSoftLimit());
+        assertEquals(available * 4 / 5, time.getHardLimit());
+
+        // far away time controls are treated like sudden death
+        assertEquals(clock(10000, 0, 0).getSoftLimit(), clock(10000, 0, 60).getSoftLimit());
+    }
+
+    @Test
+    public void moveTimeIsUsedAsItIs() {
+        TimeManager time = new TimeManager(SearchLimits.moveTime(500), START);
+        assertEquals(500, time.getSoftLimit());
+        assertEquals(500, time.getHardLimit());
+        assertEquals(START + 500, time.getDeadline());
+
+        // a fixed time search is never cut short between iterations, however long the next one looks
+        assertFalse(time.iterationDone(MOVE, 0, START + 20));
+        assertFalse(time.iterationDone(MOVE, 0, START + 200));
+        assertFalse(time.iterationDone(MOVE, Board.MATE_SCORE - 5, START + 450));
+        assertFalse(time.iterationDone(MOVE, Board.MATE_SCORE - 5, START + 499));
+    }
+
+    @Test
+    public void untimedSearchNeverStops() {
+        for (SearchLimits limits : new SearchLimits[]{SearchLimits.depth(5), SearchLimits.nodes(1000),
+                SearchLimits.infinite()}) {
+            TimeManager time = new TimeManager(limits, START);
+            assertEquals(Long.MAX_VALUE, time.getDeadline());
+            assertFalse(time.iterationDone(MOVE, 0, START + 100000000L));
+            assertFalse(time.iterationDone(MOVE, Board.MATE_SCORE - 1, START + 200000000L));
+        }
+    }
+
+    @Test
+    public void stableBestMoveSpendsLess() {
+        TimeManager stable = clock(60000, 0, 0);
+        TimeManager changing = clock(60000, 0, 0);
+        long base = stable.getSoftLimit();
+        for (int i = 1; i <= 8; i++) {
+            stable.iterationDone(MOVE, 0, START + i);
+            changing.iterationDone(i % 2 == 0 ? MOVE : OTHER_MOVE, 0, START + i);
+        }
+        assertTrue(stable.getSoftLimit() < base);
+        assertTrue(changing.getSoftLimit() > base);
+        assertTrue(changing.getSoftLimit() <= changing.getHardLimit());
+    }
+
+    @Test
+    public void softLimitStopsBetweenIterations() {
+        TimeManager time = clock(60000, 0, 0);
+        long soft = time.getSoftLimit();
+        assertFalse(time.iterationDone(MOVE, 0, START + 10));
+        assertFalse(time.iterationDone(MOVE, 0, START + 20));
+        assertTrue(time.iterationDone(MOVE, 0, START + soft));
+    }
+
+    @Test
+    public void stableMateStops() {
+        TimeManager time = clock(60000, 0, 0);
+        int mate = Board.MATE_SCORE - 5;
+        assertFalse(time.iterationDone(OTHER_MOVE, mate, START + 1));
+        assertFalse(time.iterationDone(MOVE, mate, START + 2));
+        assertFalse(time.iterationDone(MOVE, mate, START + 3));
+        assertTrue(time.iterationDone(MOVE, mate, START + 4));
+    }
+
+    @Test
+    public void iterationThatCanNotFinishIsNotStarted() {
+        // iterations of 100 then 150 ms predict 225 for the next one, which fits well before the hard limit
+        TimeManager time = clock(60000, 0, 0);
+        assertFalse(time.iterationDone(MOVE, 0, START + 100));
+        assertFalse(time.iterationDone(MOVE, 0, START + 250));
+        assertFalse(time.iterationDone(MOVE, 0, START + 475));
+
+        // an iteration nine times longer than the one before predicts six times, which would run past the hard
+        // limit although the soft one is not reached yet
+        time = clock(60000, 0, 0);
+        assertFalse(time.iterationDone(MOVE, 0, START + 20));
+        assertTrue(time.iterationDone(MOVE, 0, START + 1900));
+        assertTrue(1900 < time.getSoftLimit());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.chess;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    private static final long KEY = 0x123456789abcdefL;
+    // differs from KEY only above the index bits, so it lands in the same bucket
+    private static final long SAME_BUCKET = KEY ^ (1L << 50);
+    private static final long OTHER_SAME_BUCKET = KEY ^ (1L << 51);
+
+    private TranspositionTable table;
+
+    @Before
+    public void setUp() {
+        table = new TranspositionTable(1);
+    }
+
+    @Test
+    public void storeAndProbe() {
+        table.store(KEY, 0x1234, -250, 7, TranspositionTable.LOWER_BOUND);
+        long entry = table.probe(KEY);
+        assertNotEquals(0L, entry);
+        assertEquals(0x1234, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+    }
+
+    @Test
+    public void otherKeyInTheSameBucketMisses() {
+        table.store(KEY, 0x1234, 10, 5, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(SAME_BUCKET));
+        assertEquals(0L, table.probe(KEY + 1));
+    }
+
+    @Test
+    public void tornEntryMisses() throws Exception {
+        // another thread's store landing between our key and data writes leaves a data word that does not belong to
+        // the key; the xor check must turn that into a miss
+        table.store(KEY, 0x1234, 10, 5, TranspositionTable.EXACT);
+        table.store(SAME_BUCKET, 0x0567, 20, 3, TranspositionTable.EXACT);
+        Field dataField = TranspositionTable.class.getDeclaredField("data");
+        dataField.setAccessible(true);
+        long[] data = (long[]) dataField.get(table);
+        int index = ((int) KEY & (data.length / 2 - 1)) << 1;
+        long entry = data[index];
+        data[index] = data[index + 1];
+        data[index + 1] = entry;
+        assertEquals(0L, table.probe(KEY));
+        assertEquals(0L, table.probe(SAME_BUCKET));
+    }
+
+    @Test
+    public void sameKeyWithoutMoveKeepsTheOldMove() {
+        table.store(KEY, 0x1234, 10, 5, TranspositionTable.EXACT);
+        table.store(KEY, 0, 30, 6, TranspositionTable.UPPER_BOUND);
+        long entry = table.probe(KEY);
+        assertEquals(0x1234, TranspositionTable.move(entry));
+        assertEquals(30, TranspositionTable.score(entry));
+        assertEquals(6, TranspositionTable.depth(entry));
+    }
+
+    @Test
+    public void deepEntryOfTheCurrentSearchIsKept() {
+        table.store(KEY, 0x0001, 0, 10, TranspositionTable.EXACT);
+        table.store(SAME_BUCKET, 0x0002, 0, 5, TranspositionTable.EXACT);
+        // both fit, the shallower one in the always replace slot
+        assertNotEquals(0L, table.probe(KEY));
+        assertNotEquals(0L, table.probe(SAME_BUCKET));
+        table.store(OTHER_SAME_BUCKET, 0x0003, 0, 3, TranspositionTable.EXACT);
+        assertNotEquals(0L, table.probe(KEY));
+        assertEquals(0L, table.probe(SAME_BUCKET));
+        assertNotEquals(0L, table.probe(OTHER_SAME_BUCKET));
+    }
+
+    @Test
+    public void entriesOfOlderSearchesAreReplaced() {
+        table.store(KEY, 0x0001, 0, 10, TranspositionTable.EXACT);
+        table.newSearch();
+        table.store(SAME_BUCKET, 0x0002, 0, 2, TranspositionTable.EXACT);
+        assertEquals(0L, table.probe(KEY));
+        assertNotEquals(0L, table.probe(SAME_BUCKET));
+    }
+
+    @Test
+    public void clearEmptiesTheTable() {
+        table.store(KEY, 0x1234, 10, 5, TranspositionTable.EXACT);
+        table.clear();
+        assertEquals(0L, table.probe(KEY));
+    }
+
+    @Test
+    public void mateScoresAreStoredRelativeToTheNode() {
+        // found 3 plies from the root: we mate 5 plies after that node, the opponent mates us 4 plies after it
+        int mating = Board.MATE_SCORE - 8;
+        int mated = -Board.MATE_SCORE + 7;
+        table.store(KEY, 0, Board.scoreToTable(mating, 3), 4, TranspositionTable.EXACT);
+        table.store(KEY + 1, 0, Board.scoreToTable(mated, 3), 4, TranspositionTable.EXACT);
+
+        // read back at the same ply nothing changes
+        assertEquals(mating, Board.scoreFromTable(TranspositionTable.score(table.probe(KEY)), 3));
+        assertEquals(mated, Board.scoreFromTable(TranspositionTable.score(table.probe(KEY + 1)), 3));
+        // the same position reached 1 ply from the root is 2 plies closer to the mates
+        assertEquals(Board.MATE_SCORE - 6, Board.scoreFromTable(TranspositionTable.score(table.probe(KEY)), 1));
+        assertEquals(-Board.MATE_SCORE + 5, Board.scoreFromTable(TranspositionTable.score(table.probe(KEY + 1)), 1));
+        // and 6 plies from the root it is 3 plies further
+        assertEquals(Board.MATE_SCORE - 11, Board.scoreFromTable(TranspositionTable.score(table.probe(KEY)), 6));
+    }
+
+    @Test
+    public void ordinaryScoresAreNotAdjusted() {
+        assertEquals(-350, Board.scoreToTable(-350, 9));
+        assertEquals(Board.MATE_BOUND, Board.scoreFromTable(Board.MATE_BOUND, 9));
+        assertEquals(0, Board.scoreFromTable(0, 9));
+    }
+}